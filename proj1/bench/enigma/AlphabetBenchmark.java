@@ -0,0 +1,60 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of character lookup in an Alphabet.
+ *  @author Jeremy Lazo
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlphabetBenchmark {
+
+    /** Number of characters in the alphabet. */
+    @Param({"26", "64", "91"})
+    public int alphabetSize;
+
+    /** Prepare the alphabet and the characters to look up. */
+    @Setup
+    public void setUp() {
+        Random random = new Random(BenchSupport.SEED);
+        _alphabet = BenchSupport.alphabet(alphabetSize);
+        _chars = BenchSupport.message(_alphabet, LOOKUPS, random)
+            .replace(" ", "").toCharArray();
+    }
+
+    /** Look up each of _chars with toInt. */
+    @Benchmark
+    public int toInt() {
+        int sum = 0;
+        for (char c : _chars) {
+            sum += _alphabet.toInt(c);
+        }
+        return sum;
+    }
+
+    /** Number of characters looked up per invocation. */
+    private static final int LOOKUPS = 1024;
+
+    /** The alphabet under test. */
+    private Alphabet _alphabet;
+
+    /** Characters to look up. */
+    private char[] _chars;
+}
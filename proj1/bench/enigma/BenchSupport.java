@@ -0,0 +1,179 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+/** Randomly generated machine parts for the benchmarks.  Everything is
+ *  drawn from a fixed seed, so that every run measures the same work.
+ *  @author Jeremy Lazo
+ */
+final class BenchSupport {
+
+    /** Seed for all generated parts. */
+    static final long SEED = 61;
+
+    /** Characters from which alphabets are drawn: the printable ASCII
+     *  characters that have no special meaning in configuration files. */
+    static final String CHARS;
+
+    static {
+        StringBuilder chars = new StringBuilder();
+        for (char c = '!'; c <= '~'; c += 1) {
+            if (c != '(' && c != ')' && c != '*') {
+                chars.append(c);
+            }
+        }
+        CHARS = chars.toString();
+    }
+
+    /** Not instantiable. */
+    private BenchSupport() {
+    }
+
+    /** Return an alphabet of the first SIZE characters of "A-Z" followed
+     *  by the rest of CHARS. */
+    static Alphabet alphabet(int size) {
+        StringBuilder chars = new StringBuilder();
+        for (char c = 'A'; c <= 'Z' && chars.length() < size; c += 1) {
+            chars.append(c);
+        }
+        for (int k = 0; chars.length() < size; k += 1) {
+            char c = CHARS.charAt(k);
+            if (c < 'A' || c > 'Z') {
+                chars.append(c);
+            }
+        }
+        return new Alphabet(chars.toString());
+    }
+
+    /** Return a random permutation of ALPHA in cycle notation, using
+     *  RANDOM. */
+    static String cycles(Alphabet alpha, Random random) {
+        ArrayList<Character> chars = shuffled(alpha, random);
+        StringBuilder result = new StringBuilder();
+        int k = 0;
+        while (k < chars.size()) {
+            int len = 1 + random.nextInt(chars.size() - k);
+            result.append('(');
+            for (int end = k + len; k < end; k += 1) {
+                result.append(chars.get(k));
+            }
+            result.append(") ");
+        }
+        return result.toString();
+    }
+
+    /** Return a random set of at most PAIRS disjoint two-cycles of ALPHA,
+     *  as for a reflector or plugboard, using RANDOM. */
+    static String pairs(Alphabet alpha, int pairs, Random random) {
+        ArrayList<Character> chars = shuffled(alpha, random);
+        StringBuilder result = new StringBuilder();
+        for (int k = 0; k + 1 < chars.size() && k < 2 * pairs; k += 2) {
+            result.append('(').append(chars.get(k)).append(chars.get(k + 1))
+                .append(") ");
+        }
+        return result.toString();
+    }
+
+    /** Return the characters of ALPHA in an order chosen with RANDOM. */
+    private static ArrayList<Character> shuffled(Alphabet alpha,
+                                                 Random random) {
+        ArrayList<Character> result = new ArrayList<>();
+        for (int k = 0; k < alpha.size(); k += 1) {
+            result.add(alpha.toChar(k));
+        }
+        Collections.shuffle(result, random);
+        return result;
+    }
+
+    /** Return a random message of LENGTH characters of ALPHA, in words of
+     *  up to eight characters, using RANDOM. */
+    static String message(Alphabet alpha, int length, Random random) {
+        StringBuilder result = new StringBuilder(length);
+        while (result.length() < length) {
+            if (result.length() > 0 && random.nextInt(8) == 0) {
+                result.append(' ');
+            } else {
+                result.append(alpha.toChar(random.nextInt(alpha.size())));
+            }
+        }
+        return result.toString();
+    }
+
+    /** Return the names of the rotors of a machine with NUMROTORS slots
+     *  built by config(), reflector first. */
+    static String[] rotorNames(int numRotors) {
+        String[] result = new String[numRotors];
+        result[0] = "R";
+        result[1] = "F";
+        for (int i = 2; i < numRotors; i += 1) {
+            result[i] = "M" + i;
+        }
+        return result;
+    }
+
+    /** Return the number of pawls of a machine with NUMROTORS slots built
+     *  by config(). */
+    static int pawls(int numRotors) {
+        return Math.min(9, numRotors - 2);
+    }
+
+    /** Return the text of a configuration file for machines over ALPHA
+     *  with 2 < NUMROTORS slots: a reflector named R, a fixed rotor named
+     *  F, moving rotors named M2 .. M(NUMROTORS - 1) with one notch each,
+     *  and EXTRA further moving rotors that no benchmark uses.  Uses
+     *  RANDOM. */
+    static String config(Alphabet alpha, int numRotors, int extra,
+                         Random random) {
+        StringBuilder result = new StringBuilder();
+        for (int k = 0; k < alpha.size(); k += 1) {
+            result.append(alpha.toChar(k));
+        }
+        result.append(String.format("%n %d %d%n", numRotors,
+                                    pawls(numRotors)));
+        String[] names = rotorNames(numRotors);
+        result.append(String.format(" R R %s%n",
+                                    pairs(alpha, alpha.size(), random)));
+        result.append(String.format(" F N %s%n", cycles(alpha, random)));
+        for (int i = 2; i < numRotors + extra; i += 1) {
+            char notch = alpha.toChar(random.nextInt(alpha.size()));
+            result.append(String.format(" %s M%c %s%n",
+                                        i < numRotors ? names[i] : "X" + i,
+                                        notch, cycles(alpha, random)));
+        }
+        return result.toString();
+    }
+
+    /** Return a specification for machines over ALPHA with 2 < NUMROTORS
+     *  slots, with rotors as for config(), using RANDOM. */
+    static MachineSpec spec(Alphabet alpha, int numRotors, Random random) {
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        rotors.add(new Reflector("R", new Permutation(
+            pairs(alpha, alpha.size(), random), alpha)));
+        rotors.add(new FixedRotor("F", new Permutation(
+            cycles(alpha, random), alpha)));
+        for (int i = 2; i < numRotors; i += 1) {
+            rotors.add(new MovingRotor("M" + i, new Permutation(
+                cycles(alpha, random), alpha),
+                String.valueOf(alpha.toChar(random.nextInt(alpha.size())))));
+        }
+        return new MachineSpec(alpha, numRotors, pawls(numRotors), rotors);
+    }
+
+    /** Return a machine of SPEC with all its rotors inserted, set to
+     *  random positions, and with a random plugboard, using RANDOM. */
+    static Machine machine(MachineSpec spec, Random random) {
+        Alphabet alpha = spec.alphabet();
+        Machine result = spec.newMachine();
+        result.insertRotors(rotorNames(spec.numRotors()));
+        StringBuilder setting = new StringBuilder();
+        for (int i = 1; i < spec.numRotors(); i += 1) {
+            setting.append(alpha.toChar(random.nextInt(alpha.size())));
+        }
+        result.setRotors(setting.toString());
+        result.setPlugboard(new Permutation(pairs(alpha, 10, random),
+                                            alpha));
+        return result;
+    }
+}
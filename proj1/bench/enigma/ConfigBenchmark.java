@@ -0,0 +1,73 @@
+package enigma;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of reading a configuration file with Main.readConfig.
+ *  @author Jeremy Lazo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigBenchmark {
+
+    /** Number of characters in the alphabet. */
+    @Param({"26", "64", "91"})
+    public int alphabetSize;
+
+    /** Number of rotor slots, including the reflector. */
+    @Param({"3", "5", "8"})
+    public int numRotors;
+
+    /** Number of additional rotors listed in the configuration. */
+    @Param({"0", "30"})
+    public int extraRotors;
+
+    /** Write a configuration file to read. */
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(BenchSupport.SEED);
+        Alphabet alpha = BenchSupport.alphabet(alphabetSize);
+        _config = Files.createTempFile("enigma-bench", ".conf");
+        Files.write(_config, BenchSupport.config(alpha, numRotors,
+                                                 extraRotors, random)
+                    .getBytes("US-ASCII"));
+    }
+
+    /** Remove the configuration file. */
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(_config);
+    }
+
+    /** Read the configuration and set up a machine from it. */
+    @Benchmark
+    public Machine readConfig() {
+        Machine result =
+            new Main(new String[] { _config.toString() }).readConfig();
+        result.insertRotors(BenchSupport.rotorNames(numRotors));
+        return result;
+    }
+
+    /** The configuration file. */
+    private Path _config;
+}
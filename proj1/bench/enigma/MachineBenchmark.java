@@ -0,0 +1,111 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of converting single characters and whole messages with a
+ *  Machine.  Each benchmark takes its own state, so that it runs once
+ *  for each combination of only the parameters it uses.
+ *  @author Jeremy Lazo
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MachineBenchmark {
+
+    /** A machine, for convertInt. */
+    @State(Scope.Thread)
+    public static class Chars {
+
+        /** Number of characters in the alphabet. */
+        @Param({"26", "64"})
+        public int alphabetSize;
+
+        /** Number of rotor slots, including the reflector. */
+        @Param({"3", "5", "8"})
+        public int numRotors;
+
+        /** Prepare the machine. */
+        @Setup
+        public void setUp() {
+            Random random = new Random(BenchSupport.SEED);
+            Alphabet alpha = BenchSupport.alphabet(alphabetSize);
+            MachineSpec spec = BenchSupport.spec(alpha, numRotors, random);
+            _machine = BenchSupport.machine(spec, random);
+            _size = alpha.size();
+        }
+
+        /** The machine under test. */
+        private Machine _machine;
+
+        /** Size of the machine's alphabet. */
+        private int _size;
+    }
+
+    /** A machine and a message, for convertString. */
+    @State(Scope.Thread)
+    public static class Message {
+
+        /** Number of characters in the alphabet. */
+        @Param({"26", "64"})
+        public int alphabetSize;
+
+        /** Number of rotor slots, including the reflector. */
+        @Param({"3", "5", "8"})
+        public int numRotors;
+
+        /** Number of characters in the message. */
+        @Param({"16", "1024", "65536"})
+        public int messageLength;
+
+        /** Prepare the machine and the message. */
+        @Setup
+        public void setUp() {
+            Random random = new Random(BenchSupport.SEED);
+            Alphabet alpha = BenchSupport.alphabet(alphabetSize);
+            MachineSpec spec = BenchSupport.spec(alpha, numRotors, random);
+            _machine = BenchSupport.machine(spec, random);
+            _message = BenchSupport.message(alpha, messageLength, random);
+        }
+
+        /** The machine under test. */
+        private Machine _machine;
+
+        /** The message to convert. */
+        private String _message;
+    }
+
+    /** Convert CHARS successive indices with convert(int), using the
+     *  machine in S. */
+    @Benchmark
+    public int convertInt(Chars s) {
+        int c = 0;
+        for (int k = 0; k < CHARS; k += 1) {
+            c = s._machine.convert((c + k) % s._size);
+        }
+        return c;
+    }
+
+    /** Convert the message in S with convert(String). */
+    @Benchmark
+    public String convertString(Message s) {
+        return s._machine.convert(s._message);
+    }
+
+    /** Number of characters converted per invocation of convertInt. */
+    private static final int CHARS = 1024;
+}
@@ -0,0 +1,67 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of applying a Permutation and its inverse.
+ *  @author Jeremy Lazo
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermutationBenchmark {
+
+    /** Number of characters in the alphabet. */
+    @Param({"26", "64", "91"})
+    public int alphabetSize;
+
+    /** Prepare a random permutation. */
+    @Setup
+    public void setUp() {
+        Random random = new Random(BenchSupport.SEED);
+        Alphabet alpha = BenchSupport.alphabet(alphabetSize);
+        _perm = new Permutation(BenchSupport.cycles(alpha, random), alpha);
+    }
+
+    /** Apply the permutation to a chain of APPLICATIONS indices. */
+    @Benchmark
+    public int permute() {
+        int c = 0;
+        for (int k = 0; k < APPLICATIONS; k += 1) {
+            c = _perm.permute(c);
+        }
+        return c;
+    }
+
+    /** Apply the inverse permutation to a chain of APPLICATIONS
+     *  indices. */
+    @Benchmark
+    public int invert() {
+        int c = 0;
+        for (int k = 0; k < APPLICATIONS; k += 1) {
+            c = _perm.invert(c);
+        }
+        return c;
+    }
+
+    /** Number of applications per invocation. */
+    private static final int APPLICATIONS = 1024;
+
+    /** The permutation under test. */
+    private Permutation _perm;
+}
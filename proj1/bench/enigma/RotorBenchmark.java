@@ -0,0 +1,66 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of setting and advancing a lone MovingRotor.
+ *  @author Jeremy Lazo
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RotorBenchmark {
+
+    /** Number of characters in the alphabet. */
+    @Param({"26", "64", "91"})
+    public int alphabetSize;
+
+    /** Prepare a rotor with a random wiring and notch. */
+    @Setup
+    public void setUp() {
+        Random random = new Random(BenchSupport.SEED);
+        Alphabet alpha = BenchSupport.alphabet(alphabetSize);
+        _rotor = new MovingRotor("M", new Permutation(
+            BenchSupport.cycles(alpha, random), alpha),
+            String.valueOf(alpha.toChar(0)));
+    }
+
+    /** Set the rotor to each of MOVES positions. */
+    @Benchmark
+    public int set() {
+        for (int k = 0; k < MOVES; k += 1) {
+            _rotor.set(k);
+        }
+        return _rotor.setting();
+    }
+
+    /** Advance the rotor MOVES times. */
+    @Benchmark
+    public int advance() {
+        for (int k = 0; k < MOVES; k += 1) {
+            _rotor.advance();
+        }
+        return _rotor.setting();
+    }
+
+    /** Number of moves per invocation. */
+    private static final int MOVES = 1024;
+
+    /** The rotor under test. */
+    private Rotor _rotor;
+}
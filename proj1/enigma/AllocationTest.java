@@ -0,0 +1,204 @@
+package enigma;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.lang.management.ManagementFactory;
+import java.nio.CharBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+import static enigma.TestUtils.*;
+
+/** Tests that converting characters allocates no memory once a machine is
+ *  set up, measured with the per-thread allocation counter of
+ *  com.sun.management.ThreadMXBean.
+ *  @author Jeremy Lazo
+ */
+public class AllocationTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(30);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Number of characters converted in each measurement. */
+    private static final int CHARS = 1 << 21;
+
+    /** Bytes that a measurement may allocate in all, however many
+     *  characters it converts, to allow for anything the JVM itself
+     *  allocates on the testing thread. */
+    private static final long SLACK = 1 << 12;
+
+    /** Characters in each buffer passed to the bulk conversions. */
+    private static final int BUFFER_SIZE = 1 << 12;
+
+    /** The allocation counter, or null if this JVM has none. */
+    private com.sun.management.ThreadMXBean _threads;
+
+    /** A machine ready to convert. */
+    private Machine _machine;
+
+    /** Make _machine a five-rotor machine with a plugboard, and find the
+     *  allocation counter, skipping the test if there is none. */
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean threads =
+            ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        _threads = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(_threads.isThreadAllocatedMemorySupported());
+        _threads.setThreadAllocatedMemoryEnabled(true);
+        Alphabet alpha = new Alphabet(UPPER_STRING);
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        rotors.add(new Reflector("B", new Permutation(
+            "(AE) (BN) (CK) (DQ) (FU) (GY) (HW) (IJ) (LO) (MP) (RX) (SZ)"
+            + " (TV)", alpha)));
+        rotors.add(new FixedRotor("Beta", new Permutation(
+            "(ALBEVFCYODJWUGNMQTZSKPR) (HIX)", alpha)));
+        rotors.add(new MovingRotor("III", new Permutation(
+            "(ABDHPEJT) (CFLVMZOYQIRWUKXSG) (N)", alpha), "V"));
+        rotors.add(new MovingRotor("IV", new Permutation(
+            "(AEPLIYWCOXMRFZBSTGJQNH) (DV) (KU)", alpha), "J"));
+        rotors.add(new MovingRotor("I", new Permutation(
+            "(AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ) (S)", alpha), "Q"));
+        _machine = new Machine(alpha, 5, 3, rotors);
+        _machine.insertRotors(new String[] {"B", "Beta", "III", "IV", "I"});
+        _machine.setRotors("AXLE");
+        _machine.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)",
+                                              alpha));
+    }
+
+    /** Return the number of bytes allocated by RUN, after running it
+     *  once first so that anything it allocates only once is not
+     *  counted. */
+    private long allocatedBy(Runnable run) {
+        run.run();
+        long id = Thread.currentThread().getId();
+        _threads.getThreadAllocatedBytes(id);
+        long before = _threads.getThreadAllocatedBytes(id);
+        run.run();
+        return _threads.getThreadAllocatedBytes(id) - before;
+    }
+
+    /** Check that RUN, which converts CHARS characters, allocates at most
+     *  SLACK bytes.  TESTID is used in error messages. */
+    private void checkNoAllocation(String testId, Runnable run) {
+        long bytes = allocatedBy(run);
+        assertTrue(msg(testId, "allocated %d bytes for %d characters",
+                       bytes, CHARS), bytes <= SLACK);
+    }
+
+    /** Return a buffer of BUFFER_SIZE message characters. */
+    private static char[] message() {
+        char[] result = new char[BUFFER_SIZE];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = i % 6 == 5 ? ' ' : UPPER_STRING.charAt(i * 7 % 26);
+        }
+        return result;
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkConvertInt() {
+        checkNoAllocation("convert(int)", () -> {
+            for (int i = 0; i < CHARS; i += 1) {
+                _machine.convert(i % 26);
+            }
+        });
+    }
+
+    @Test
+    public void checkSuccessorTable() {
+        _machine.setSuccessorTable(1 << 20);
+        checkNoAllocation("convert(int) with successor table", () -> {
+            for (int i = 0; i < CHARS; i += 1) {
+                _machine.convert(i % 26);
+            }
+        });
+    }
+
+    @Test
+    public void checkStateCache() {
+        _machine.setStateCache(1 << 20);
+        checkNoAllocation("convert(int) with state cache", () -> {
+            for (int i = 0; i < CHARS; i += 1) {
+                _machine.convert(i % 26);
+            }
+        });
+    }
+
+    @Test
+    public void checkFullStateCache() {
+        _machine.setStateCache(1 << 12);
+        checkNoAllocation("convert(int) with full state cache", () -> {
+            for (int i = 0; i < CHARS; i += 1) {
+                _machine.convert(i % 26);
+            }
+        });
+    }
+
+    @Test
+    public void checkTraced() {
+        _machine.setTrace(new KeyTrace(1 << 10, 16, Paths.get("unused.trace")));
+        checkNoAllocation("convert(int) with trace", () -> {
+            for (int i = 0; i < CHARS; i += 1) {
+                _machine.convert(i % 26);
+            }
+        });
+    }
+
+    @Test
+    public void checkConvertArray() {
+        char[] src = message();
+        char[] dest = new char[src.length];
+        checkNoAllocation("convert(char[])", () -> {
+            for (int n = 0; n < CHARS; n += src.length) {
+                _machine.convert(src, 0, src.length, dest, 0);
+            }
+        });
+    }
+
+    @Test
+    public void checkConvertCharBuffer() {
+        CharBuffer src = CharBuffer.wrap(message());
+        CharBuffer dest = CharBuffer.allocate(BUFFER_SIZE);
+        checkNoAllocation("convert(CharBuffer)", () -> {
+            for (int n = 0; n < CHARS; n += BUFFER_SIZE) {
+                src.clear();
+                dest.clear();
+                _machine.convert(src, dest);
+            }
+        });
+    }
+
+    @Test
+    public void checkConvertCodes() {
+        int[] codes = new int[BUFFER_SIZE];
+        checkNoAllocation("convert(int[])", () -> {
+            for (int n = 0; n < CHARS; n += codes.length) {
+                _machine.convert(codes, 0, codes.length);
+            }
+        });
+    }
+
+    @Test
+    public void checkConvertGroups() {
+        char[] src = message();
+        StringBuilder out = new StringBuilder(2 * BUFFER_SIZE);
+        GroupWriter groups = new GroupWriter(out);
+        checkNoAllocation("convert(GroupWriter)", () -> {
+            for (int n = 0; n < CHARS; n += src.length) {
+                out.setLength(0);
+                _machine.convert(src, 0, src.length, groups);
+                groups.newLine();
+            }
+        });
+    }
+}
@@ -1,8 +1,7 @@
-
 package enigma;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+
 import static enigma.EnigmaException.*;
 
 /** An alphabet of encodable characters.  Provides a mapping from characters
@@ -15,13 +14,35 @@ class Alphabet {
      *  K (numbering from 0). No character may be duplicated. */
     Alphabet(String chars) {
         str = chars;
-        for (int i = 0; i < chars.length(); i++) {
-            if (_chars.containsValue(chars.charAt(i))) {
+        _chars = chars.toCharArray();
+        int lo = Character.MAX_VALUE, hi = Character.MIN_VALUE;
+        for (char c : _chars) {
+            lo = Math.min(lo, c);
+            hi = Math.max(hi, c);
+        }
+        int span = hi - lo + 1;
+        if (_chars.length == 0
+                || span <= DENSE_SPAN || span <= DENSE_FACTOR * size()) {
+            _offset = Math.min(lo, hi);
+            _index = new int[Math.max(span, 0)];
+            Arrays.fill(_index, -1);
+            _keys = null;
+            _shift = 0;
+        } else {
+            int bits = 32 - Integer.numberOfLeadingZeros(2 * size() - 1);
+            _offset = 0;
+            _index = new int[1 << bits];
+            Arrays.fill(_index, -1);
+            _keys = new char[1 << bits];
+            _shift = 32 - bits;
+        }
+        for (int i = 0; i < _chars.length; i++) {
+            if (index(_chars[i]) >= 0) {
                 throw error("Error when"
                         + " making alphabet, two identical characters were"
                         + " passed in constructor");
             }
-            _chars.put(i, chars.charAt(i));
+            put(_chars[i], i);
         }
     }
 
@@ -32,37 +53,91 @@ class Alphabet {
 
     /** Returns the size of the alphabet. */
     int size() {
-        return _chars.size();
+        return _chars.length;
     }
 
     /** Returns true if CH is in this alphabet. */
     boolean contains(char ch) {
-        return _chars.containsValue(ch);
+        return index(ch) >= 0;
     }
 
     /** Returns character number INDEX in the alphabet, where
      *  0 <= INDEX < size(). */
     char toChar(int index) {
-        return _chars.get(index);
+        return _chars[index];
     }
 
     /** Returns the index of character CH which must be in
      *  the alphabet. This is the inverse of toChar(). */
-    Integer toInt(char ch) {
-        for (Map.Entry<Integer, Character> entry : _chars.entrySet()) {
-            if (entry.getValue().equals(ch)) {
-                return entry.getKey();
+    int toInt(char ch) {
+        int i = index(ch);
+        if (i < 0) {
+            throw error("character %c not in alphabet", ch);
+        }
+        return i;
+    }
+
+    /** Returns the index of CH, or -1 if CH is not in this alphabet. */
+    int index(char ch) {
+        if (_keys == null) {
+            int k = ch - _offset;
+            return k >= 0 && k < _index.length ? _index[k] : -1;
+        }
+        int mask = _index.length - 1;
+        for (int k = slot(ch); _index[k] >= 0; k = (k + 1) & mask) {
+            if (_keys[k] == ch) {
+                return _index[k];
             }
         }
-        return null;
+        return -1;
+    }
+
+    /** Record that CH has index I. */
+    private void put(char ch, int i) {
+        if (_keys == null) {
+            _index[ch - _offset] = i;
+            return;
+        }
+        int mask = _index.length - 1;
+        int k = slot(ch);
+        while (_index[k] >= 0) {
+            k = (k + 1) & mask;
+        }
+        _keys[k] = ch;
+        _index[k] = i;
     }
-    /** Returns HashMap _char. */
-    public HashMap chars() {
-        return _chars;
+
+    /** Returns the home slot of CH in the open-addressed table. */
+    private int slot(char ch) {
+        return (ch * HASH_MULTIPLIER) >>> _shift;
     }
+
+    /** Largest character range always given a dense lookup table. */
+    private static final int DENSE_SPAN = 1 << 12;
+
+    /** Ranges at most this many times the alphabet size are kept dense. */
+    private static final int DENSE_FACTOR = 8;
+
+    /** Fibonacci-hashing multiplier for the open-addressed table. */
+    private static final int HASH_MULTIPLIER = 0x9E3779B1;
+
     /** A string version of characters in Alphabet. */
     protected final String str;
-    /** A HashMap containing all characters of Alphabet. */
-    private HashMap<Integer, Character> _chars =
-            new HashMap<Integer, Character>();
+
+    /** The characters of this Alphabet, in index order. */
+    private final char[] _chars;
+
+    /** Character-to-index table.  When _keys is null, entry K holds the
+     *  index of character _offset + K; otherwise it holds the index of
+     *  _keys[K] in an open-addressed table.  Unused entries are -1. */
+    private final int[] _index;
+
+    /** Keys of the open-addressed table, or null for a dense table. */
+    private final char[] _keys;
+
+    /** Smallest character covered by a dense table. */
+    private final int _offset;
+
+    /** Hash shift for the open-addressed table. */
+    private final int _shift;
 }
@@ -0,0 +1,110 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+/** A Writer that encodes characters into a large direct byte buffer and
+ *  writes the buffer to a channel whenever it fills.
+ *  @author Jeremy Lazo
+ */
+class ChannelWriter extends Writer {
+
+    /** Size of the character and byte buffers. */
+    static final int BUFFER_SIZE = 1 << 20;
+
+    /** A ChannelWriter writing to CHANNEL, encoded using CHARSET. */
+    ChannelWriter(WritableByteChannel channel, Charset charset) {
+        _channel = channel;
+        _encoder = charset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        _chars = new char[BUFFER_SIZE];
+        _charBuffer = CharBuffer.wrap(_chars);
+        _bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        if (_count == _chars.length) {
+            encode(false);
+        }
+        _chars[_count++] = (char) c;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            write(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            write(str.charAt(i));
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        encode(false);
+        drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        encode(true);
+        _encoder.flush(_bytes);
+        drain();
+        _channel.close();
+    }
+
+    /** Encode the pending characters into _bytes, draining it to the
+     *  channel as it fills.  Characters that cannot be encoded until more
+     *  input arrives (a lone high surrogate) are kept unless LAST. */
+    private void encode(boolean last) throws IOException {
+        _charBuffer.limit(_count).position(0);
+        while (_encoder.encode(_charBuffer, _bytes, last).isOverflow()) {
+            drain();
+        }
+        int left = _charBuffer.remaining();
+        System.arraycopy(_chars, _charBuffer.position(), _chars, 0, left);
+        _count = left;
+    }
+
+    /** Write the contents of _bytes to the channel. */
+    private void drain() throws IOException {
+        _bytes.flip();
+        if (Stats.ENABLED) {
+            Stats.BYTES_OUT.add(_bytes.remaining());
+        }
+        while (_bytes.hasRemaining()) {
+            _channel.write(_bytes);
+        }
+        _bytes.clear();
+    }
+
+    /** Destination of my output. */
+    private final WritableByteChannel _channel;
+
+    /** Encoder from characters to bytes. */
+    private final CharsetEncoder _encoder;
+
+    /** Characters written but not yet encoded, in [0 .. _count-1]. */
+    private final char[] _chars;
+
+    /** Buffer wrapping _chars. */
+    private final CharBuffer _charBuffer;
+
+    /** Number of pending characters in _chars. */
+    private int _count;
+
+    /** Encoded bytes not yet written to the channel. */
+    private final ByteBuffer _bytes;
+}
@@ -0,0 +1,180 @@
+package enigma;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static enigma.EnigmaException.*;
+
+/** Reads and writes machine configurations in a compact binary form, so
+ *  that a configuration file need not be parsed on every run.  A compiled
+ *  configuration holds, in order (all numbers big-endian):
+ *  <pre>
+ *    int MAGIC, int VERSION, long checksum of the source file,
+ *    int alphabet size N, N chars of the alphabet,
+ *    int rotor slots, int pawls, int rotor count, and for each rotor:
+ *      int name length, the chars of its name,
+ *      byte kind ('M', 'N' or 'R'), (N + 7) / 8 bytes of notch bits
+ *      (bit K % 8 of byte K / 8 is set iff position K has a notch),
+ *      N ints of its forward table, N ints of its inverse table.
+ *  </pre>
+ *  @author Jeremy Lazo
+ */
+class CompiledConfig {
+
+    /** First word of every compiled configuration ("ENGC"). */
+    static final int MAGIC = 0x454E4743;
+
+    /** Version of the format written. */
+    static final int VERSION = 1;
+
+    /** Suffix added to the name of a configuration file to get the name of
+     *  its compiled form. */
+    static final String SUFFIX = ".bin";
+
+    /** Return the checksum of the contents of the file SOURCE. */
+    static long checksum(Path source) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(Files.readAllBytes(source));
+        return crc.getValue();
+    }
+
+    /** Write SPEC, compiled from a source file with checksum CHECKSUM, to
+     *  the file OUT.  All of the rotors of SPEC must use its alphabet.
+     *  Every rotor of SPEC is built, since its tables are written. */
+    static void write(MachineSpec spec, long checksum, Path out)
+        throws IOException {
+        Alphabet alpha = spec.alphabet();
+        int n = alpha.size();
+        List<RotorDescription> rotors = spec.descriptions();
+        try (DataOutputStream data = new DataOutputStream(
+                 new BufferedOutputStream(Files.newOutputStream(out)))) {
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeLong(checksum);
+            data.writeInt(n);
+            for (int k = 0; k < n; k += 1) {
+                data.writeChar(alpha.toChar(k));
+            }
+            data.writeInt(spec.numRotors());
+            data.writeInt(spec.numPawls());
+            data.writeInt(rotors.size());
+            for (RotorDescription d : rotors) {
+                Rotor r = d.rotor();
+                if (r.size() != n) {
+                    throw error("rotor %s not in machine alphabet", r.name());
+                }
+                data.writeInt(r.name().length());
+                data.writeChars(r.name());
+                data.writeByte(r.reflecting() ? 'R'
+                               : r.rotates() ? 'M' : 'N');
+                byte[] notches = new byte[(n + 7) / 8];
+                for (int k = 0; k < n; k += 1) {
+                    if (r.atNotch(k)) {
+                        notches[k / 8] |= 1 << (k % 8);
+                    }
+                }
+                data.write(notches);
+                for (int k = 0; k < n; k += 1) {
+                    data.writeInt(r.permutation().permute(k));
+                }
+                for (int k = 0; k < n; k += 1) {
+                    data.writeInt(r.permutation().invert(k));
+                }
+            }
+        }
+    }
+
+    /** Return the machine specification in the compiled configuration
+     *  file IN, memory-mapping it, or null if there is no such file, if
+     *  it was not compiled from a source with checksum CHECKSUM, or if it
+     *  is not a valid compiled configuration. */
+    static MachineSpec read(Path in, long checksum) throws IOException {
+        ByteBuffer buf;
+        try (FileChannel channel =
+                 FileChannel.open(in, StandardOpenOption.READ)) {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                              channel.size());
+        } catch (NoSuchFileException excp) {
+            return null;
+        }
+        try {
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION
+                || buf.getLong() != checksum) {
+                return null;
+            }
+            Alphabet alpha = new Alphabet(getString(buf));
+            int n = alpha.size();
+            int numRotors = buf.getInt();
+            int pawls = buf.getInt();
+            int count = buf.getInt();
+            if (count < 0 || count > buf.remaining()) {
+                return null;
+            }
+            RotorDescription[] rotors = new RotorDescription[count];
+            for (int i = 0; i < rotors.length; i += 1) {
+                rotors[i] = new RotorDescription(getRotor(buf, alpha));
+            }
+            if (buf.hasRemaining()) {
+                return null;
+            }
+            return new MachineSpec(alpha, numRotors, pawls, rotors);
+        } catch (BufferUnderflowException | IllegalArgumentException
+                 | EnigmaException excp) {
+            return null;
+        }
+    }
+
+    /** Return the next rotor in BUF, whose alphabet is ALPHA. */
+    private static Rotor getRotor(ByteBuffer buf, Alphabet alpha) {
+        int n = alpha.size();
+        String name = getString(buf);
+        byte kind = buf.get();
+        StringBuilder notches = new StringBuilder();
+        for (int k = 0; k < n; k += 8) {
+            byte bits = buf.get();
+            for (int b = 0; b < 8 && k + b < n; b += 1) {
+                if ((bits & (1 << b)) != 0) {
+                    notches.append(alpha.toChar(k + b));
+                }
+            }
+        }
+        int[] forward = new int[n];
+        int[] inverse = new int[n];
+        buf.asIntBuffer().get(forward).get(inverse);
+        buf.position(buf.position() + 8 * n);
+        Permutation perm = Permutation.fromTables(forward, inverse, alpha);
+        switch (kind) {
+        case 'M':
+            return new MovingRotor(name, perm, notches.toString());
+        case 'N':
+            return new FixedRotor(name, perm);
+        case 'R':
+            return new Reflector(name, perm);
+        default:
+            throw new IllegalArgumentException("bad rotor kind");
+        }
+    }
+
+    /** Return the next string in BUF, stored as its length followed by
+     *  its characters. */
+    private static String getString(ByteBuffer buf) {
+        int len = buf.getInt();
+        if (len < 0 || len > buf.remaining() / 2) {
+            throw new IllegalArgumentException("bad string length");
+        }
+        char[] chars = new char[len];
+        buf.asCharBuffer().get(chars);
+        buf.position(buf.position() + 2 * chars.length);
+        return new String(chars);
+    }
+}
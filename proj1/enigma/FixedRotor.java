@@ -1,8 +1,5 @@
-
 package enigma;
 
-import java.util.HashMap;
-
 import static enigma.EnigmaException.*;
 
 /** Class that represents a rotor that has no ratchet and does not advance.
@@ -14,33 +11,10 @@ class FixedRotor extends Rotor {
      * is given by PERM. */
     FixedRotor(String name, Permutation perm) {
         super(name, perm);
-        _permutation = super.permutation();
-        _setting = super.setting();
-    }
-
-    /** Overrides set methods of Rotor,
-     *  removing the ability for rotor to move. */
-    @Override
-    void set(int posn) {
-        HashMap sets = mySets();
-        _permutation.updateCycles((String) sets.get(posn));
-        _setting = posn;
     }
 
     @Override
-    void set(char cposn) {
-        int posn = _permutation.alphabet().toInt(cposn);
-        set(posn);
-    }
-    /** returns this.setting, if not overridden,
-     * settin() would return super.setting. */
-    @Override
-    int setting() {
-        return _setting;
+    Rotor copy() {
+        return new FixedRotor(name(), permutation());
     }
-    /** Instance variable for permutation. */
-    private Permutation _permutation;
-    /** Instance variable for _setting. */
-    private int _setting;
 }
-
@@ -0,0 +1,63 @@
+package enigma;
+
+import java.io.IOException;
+
+import static enigma.EnigmaException.*;
+
+/** Writes message characters to an Appendable in groups of five
+ *  separated by single blanks, a line at a time, as they are produced.
+ *  Only the position within the current group is remembered, so lines of
+ *  any length use constant memory.
+ *  @author Jeremy Lazo
+ */
+class GroupWriter {
+
+    /** Number of characters in a full group. */
+    static final int GROUP_SIZE = 5;
+
+    /** A GroupWriter sending its output to OUT. */
+    GroupWriter(Appendable out) {
+        _out = out;
+    }
+
+    /** Write C as the next character of the current line. */
+    void write(char c) {
+        try {
+            if (_inGroup == GROUP_SIZE) {
+                _out.append(' ');
+                _inGroup = 0;
+            }
+            _out.append(c);
+            _inGroup += 1;
+        } catch (IOException excp) {
+            throw error("could not write output");
+        }
+    }
+
+    /** Write the characters BUF[START .. END-1] to the current line. */
+    void write(char[] buf, int start, int end) {
+        for (int i = start; i < end; i++) {
+            write(buf[i]);
+        }
+    }
+
+    /** End the current line. */
+    void newLine() {
+        try {
+            _out.append(LINE_SEPARATOR);
+            _inGroup = 0;
+        } catch (IOException excp) {
+            throw error("could not write output");
+        }
+    }
+
+    /** Line terminator written by newLine(). */
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /** Destination of my output. */
+    private final Appendable _out;
+
+    /** Number of characters written to the current group of the current
+     *  line. */
+    private int _inGroup;
+}
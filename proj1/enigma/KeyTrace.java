@@ -0,0 +1,183 @@
+package enigma;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import static enigma.EnigmaException.*;
+
+/** A record of sampled keystrokes, for finding out afterwards where a
+ *  machine was when it converted a character.  Machines given a trace
+ *  (see Machine.setTrace) record one keystroke in every getSampling(),
+ *  each as its keystroke number, the machine's state id (see
+ *  Machine.stateId) after advancing, and the input and output alphabet
+ *  indices.  Records go into a ring buffer allocated once outside the
+ *  Java heap, so that recording allocates nothing and the oldest
+ *  records are overwritten when it is full.  Only sampled keystrokes
+ *  reach the trace, so it may be shared by machines in several threads.
+ *  A dump holds, in order (all numbers big-endian):
+ *  <pre>
+ *    int MAGIC, int VERSION, int sampling, int record count R,
+ *    long number of keystrokes ever recorded,
+ *    R records, oldest first, each:
+ *      long keystroke number (from 1, counted separately by each
+ *      machine), long state id, int input index, int output index.
+ *  </pre>
+ *  @author Jeremy Lazo
+ */
+final class KeyTrace implements KeyTraceMXBean {
+
+    /** First word of every dump ("ENGT"). */
+    static final int MAGIC = 0x454E4754;
+
+    /** Version of the dump format written. */
+    static final int VERSION = 1;
+
+    /** Bytes in the header of a dump. */
+    static final int HEADER_BYTES = 24;
+
+    /** Bytes in each record. */
+    static final int RECORD_BYTES = 24;
+
+    /** System property naming the file to which the trace is dumped.
+     *  Tracing is off unless it is set. */
+    static final String FILE_PROPERTY = "enigma.trace";
+
+    /** System property giving N, where one keystroke in N is
+     *  recorded. */
+    static final String SAMPLING_PROPERTY = "enigma.traceSample";
+
+    /** System property giving the number of records held. */
+    static final String RECORDS_PROPERTY = "enigma.traceRecords";
+
+    /** Default number of records held. */
+    static final int DEFAULT_RECORDS = 1 << 16;
+
+    /** Name under which a trace is registered with the platform MBean
+     *  server. */
+    static final String OBJECT_NAME = "enigma:type=KeyTrace";
+
+    /** A trace holding the last CAPACITY > 0 of the keystrokes sampled,
+     *  one in SAMPLING > 0, to be dumped to FILE. */
+    KeyTrace(int capacity, int sampling, Path file) {
+        if (capacity <= 0 || capacity > Integer.MAX_VALUE / RECORD_BYTES
+            || sampling <= 0) {
+            throw error("bad trace size or sampling");
+        }
+        _capacity = capacity;
+        _sampling = sampling;
+        _file = file;
+        _records = ByteBuffer.allocateDirect(capacity * RECORD_BYTES);
+    }
+
+    /** Return a trace as given by the system properties FILE_PROPERTY,
+     *  SAMPLING_PROPERTY and RECORDS_PROPERTY, registered as an MBean, or
+     *  null if tracing is off. */
+    static KeyTrace fromProperties() {
+        String name = System.getProperty(FILE_PROPERTY);
+        if (name == null) {
+            return null;
+        }
+        KeyTrace result =
+            new KeyTrace(Integer.getInteger(RECORDS_PROPERTY,
+                                            DEFAULT_RECORDS),
+                         Integer.getInteger(SAMPLING_PROPERTY, 1),
+                         Paths.get(name));
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(result, new ObjectName(OBJECT_NAME));
+        } catch (JMException excp) {
+            System.err.printf("Warning: could not register %s: %s%n",
+                              OBJECT_NAME, excp.getMessage());
+        }
+        return result;
+    }
+
+    /** Record that keystroke number KEY left its machine in state STATE
+     *  and converted alphabet index IN to OUT. */
+    synchronized void record(long key, long state, int in, int out) {
+        int p = (int) (_recorded % _capacity) * RECORD_BYTES;
+        _records.putLong(p, key);
+        _records.putLong(p + 8, state);
+        _records.putInt(p + 16, in);
+        _records.putInt(p + 20, out);
+        _recorded += 1;
+    }
+
+    @Override
+    public synchronized long getRecorded() {
+        return _recorded;
+    }
+
+    @Override
+    public int getCapacity() {
+        return _capacity;
+    }
+
+    @Override
+    public int getSampling() {
+        return _sampling;
+    }
+
+    @Override
+    public void dump() throws IOException {
+        dump(_file);
+    }
+
+    /** Write the records held to the file OUT, replacing its contents,
+     *  in the format described above. */
+    synchronized void dump(Path out) throws IOException {
+        int count = (int) Math.min(_recorded, _capacity);
+        int oldest = _recorded > _capacity
+            ? (int) (_recorded % _capacity) * RECORD_BYTES : 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(_sampling)
+            .putInt(count).putLong(_recorded).flip();
+        ByteBuffer older = _records.duplicate();
+        older.limit(count * RECORD_BYTES).position(oldest);
+        ByteBuffer newer = _records.duplicate();
+        newer.limit(oldest).position(0);
+        try (FileChannel channel =
+                 FileChannel.open(out, StandardOpenOption.WRITE,
+                                  StandardOpenOption.CREATE,
+                                  StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (ByteBuffer buf : new ByteBuffer[] { header, older, newer }) {
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+            }
+        }
+    }
+
+    /** Write the records held to the dump file, reporting rather than
+     *  throwing any failure, as when dumping after another error. */
+    void dumpQuietly() {
+        try {
+            dump();
+        } catch (IOException excp) {
+            System.err.printf("Warning: could not write trace to %s%n",
+                              _file);
+        }
+    }
+
+    /** Number of records held. */
+    private final int _capacity;
+
+    /** One keystroke in this many is recorded. */
+    private final int _sampling;
+
+    /** File to which dump() writes. */
+    private final Path _file;
+
+    /** The ring of records, outside the heap. */
+    private final ByteBuffer _records;
+
+    /** Number of records ever made. */
+    private long _recorded;
+}
@@ -0,0 +1,23 @@
+package enigma;
+
+import java.io.IOException;
+
+/** Management interface through which a KeyTrace may be inspected and
+ *  dumped over JMX, as the MBean named KeyTrace.OBJECT_NAME.
+ *  @author Jeremy Lazo
+ */
+public interface KeyTraceMXBean {
+
+    /** Return the number of keystrokes recorded so far, including those
+     *  since overwritten. */
+    long getRecorded();
+
+    /** Return the number of records the trace holds. */
+    int getCapacity();
+
+    /** Return N, where one keystroke in N is recorded. */
+    int getSampling();
+
+    /** Write the records held to the trace's dump file. */
+    void dump() throws IOException;
+}
@@ -1,10 +1,11 @@
 
 package enigma;
 
-import java.util.ArrayList;
+import java.nio.CharBuffer;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
 
 import static enigma.EnigmaException.*;
 
@@ -15,13 +16,64 @@ class Machine {
 
     /** A new Enigma machine with alphabet ALPHA, 1 < NUMROTORS rotor slots,
      *  and 0 <= PAWLS < NUMROTORS pawls.  ALLROTORS contains all the
-     *  available rotors. */
+     *  available rotors.  The machine uses frozen copies of them (see
+     *  MachineSpec), so ALLROTORS are not changed, and do not move with
+     *  the machine: its rotor positions are given by setting(). */
     Machine(Alphabet alpha, int numRotors, int pawls,
             Collection<Rotor> allRotors) {
-        _alphabet = alpha;
-        _numRotors = numRotors;
-        _numPawls = pawls;
-        _allRotors = (ArrayList) allRotors;
+        this(new MachineSpec(alpha, numRotors, pawls, allRotors));
+    }
+
+    /** A new Enigma machine as described by SPEC, which it shares with
+     *  any other machines made from it.  Only the rotor slot choices,
+     *  settings and plugboard belong to this machine. */
+    Machine(MachineSpec spec) {
+        _spec = spec;
+        _alphabet = spec.alphabet();
+        _numRotors = spec.numRotors();
+        _numPawls = spec.numPawls();
+    }
+
+    /** A new machine with the configuration, rotors and plugboard of
+     *  BASE, whose rotors are at SETTINGS (indexed by slot) and which
+     *  has no state cache.  The two machines share only objects that
+     *  neither changes, so they may be used by different threads. */
+    private Machine(Machine base, int[] settings) {
+        _spec = base._spec;
+        _alphabet = base._alphabet;
+        _numRotors = base._numRotors;
+        _numPawls = base._numPawls;
+        _slots = base._slots;
+        _settings = settings;
+        _selfAdvance = base._selfAdvance;
+        _lowestPawl = base._lowestPawl;
+        _firstMoving = base._firstMoving;
+        _folded = base._folded;
+        _plugboard = base._plugboard;
+        _stateIdFits = base._stateIdFits;
+    }
+
+    /** Return a copy of me, with my rotors, their settings and my
+     *  plugboard but no state cache, sharing only objects that neither
+     *  machine changes. */
+    Machine copy() {
+        return new Machine(this, _settings.clone());
+    }
+
+    /** Set my rotors, their settings and my plugboard to those of OTHER,
+     *  which must have the same specification as I, without checking
+     *  them again. */
+    void restore(Machine other) {
+        _slots = other._slots;
+        _settings = other._settings.clone();
+        _selfAdvance = other._selfAdvance;
+        _lowestPawl = other._lowestPawl;
+        _firstMoving = other._firstMoving;
+        _folded = other._folded;
+        _plugboard = other._plugboard;
+        _stateIdFits = other._stateIdFits;
+        _cacheChecked = false;
+        syncSuccessors();
     }
 
     /** Return the number of rotor slots I have. */
@@ -38,53 +90,44 @@ class Machine {
      *  available rotors (ROTORS[0] names the reflector).
      *  Initially, all rotors are set at their 0 setting. */
     void insertRotors(String[] rotors) {
-        _myRotors = new HashMap<String, Rotor>(_numRotors);
         if (rotors.length != _numRotors) {
             throw error("string[] not the same as required num"
                     + "of rotors");
         }
-        for (Object o : _allRotors) {
-            Rotor r = (Rotor) o;
-            if (rotors[0].equals(r.name())) {
-                if (!r.reflecting()) {
-                    throw error("rotor[0] not a reflector");
-                } else {
-                    _myRotors.put("Rotor0", r);
-                    rotors[0] = "";
-                }
+        Rotor[] slots = new Rotor[_numRotors];
+        for (int i = 0; i < rotors.length; i++) {
+            Rotor r = _spec.rotor(rotors[i]);
+            if (i == 0 && !r.reflecting()) {
+                throw error("rotor[0] not a reflector");
             }
-            for (int i = 1; i < rotors.length; i++) {
-                if (rotors[i].equals(r.name())) {
-                    if (!_myRotors.isEmpty() && _myRotors.containsValue(r)) {
-                        throw error("Duplicate Rotors");
-                    }
-                    if (r.reflecting()) {
-                        throw error("Rotor is a reflector");
-                    }
-                    _myRotors.put("Rotor" + i, r);
-                    rotors[i] = "";
+            if (i != 0 && r.reflecting()) {
+                throw error("Rotor is a reflector");
+            }
+            for (int j = 0; j < i; j++) {
+                if (slots[j] == r) {
+                    throw error("Duplicate Rotors");
                 }
             }
-
+            slots[i] = r;
         }
-        String checkUsed = Arrays.toString(rotors);
-        checkUsed = checkUsed.replaceAll(" ", "");
-        checkUsed = checkUsed.replaceAll(",", "");
-        checkUsed = checkUsed.replaceAll("\\]", "");
-        checkUsed = checkUsed.replaceAll("\\[", "");
-        if (checkUsed.length() >= 1) {
-            throw error("a rotor not in conf");
+        checkOrder(slots);
+        _slots = slots;
+        _settings = new int[_numRotors];
+        _selfAdvance = new boolean[_numRotors];
+        for (int i = 1; i < _numRotors; i++) {
+            _selfAdvance[i] = !slots[i - 1].reflecting();
         }
-        checkOrder(_myRotors);
+        _lowestPawl = Math.max(1, _numRotors - _numPawls);
+        fold();
+        _cacheChecked = false;
     }
 
-    /** Checks if _myRotors is propery ordered
-     * (no rotatable rotors before fixed rotors).
-     * @param map is Hashmap of Machine's Rotors*/
-    void checkOrder(HashMap map) {
+    /** Checks if SLOTS is propery ordered
+     * (no rotatable rotors before fixed rotors). */
+    void checkOrder(Rotor[] slots) {
         boolean prevCanRotate = true;
         for (int i = _numRotors - 1; i != 0; i--) {
-            Rotor current = (Rotor) map.get("Rotor" + i);
+            Rotor current = slots[i];
             if (!prevCanRotate && current.rotates()) {
                 throw error("Rotors not ordered correctly");
 
@@ -100,14 +143,41 @@ class Machine {
      *  numRotors()-1 characters in my alphabet. The first letter refers
      *  to the leftmost rotor setting (not counting the reflector).  */
     void setRotors(String setting) {
-        char[] sets = setting.toCharArray();
-        if (sets.length != numRotors() - 1) {
+        if (setting.length() != numRotors() - 1) {
             throw error("String setting not correct size");
         }
         for (int i = 1; i < numRotors(); i++) {
-            Rotor r = _myRotors.get("Rotor" + i);
-            r.set(sets[i - 1]);
+            _settings[i] = _alphabet.toInt(setting.charAt(i - 1));
+        }
+        fold();
+        _cacheChecked = false;
+    }
+
+    /** Combine the reflector with the rotors to its right that can never
+     *  move (fixed rotors, and rotors that no pawl reaches) into the
+     *  single permutation _folded, and set _firstMoving to the leftmost
+     *  slot that is not folded.  Must be called whenever the rotors or
+     *  their settings change other than by stepping. */
+    private void fold() {
+        _firstMoving = 1;
+        while (_firstMoving < _numRotors
+                && (_firstMoving < _lowestPawl
+                    || !_slots[_firstMoving].rotates())) {
+            _firstMoving += 1;
+        }
+        Permutation folded = _slots[0].permutation();
+        for (int i = 1; i < _firstMoving; i++) {
+            Permutation wiring = _slots[i].permutationAt(_settings[i]);
+            folded = wiring.inverse().compose(folded.compose(wiring));
         }
+        _folded = folded;
+        _stateIdFits = countStates() > 0;
+        syncSuccessors();
+    }
+
+    /** Return the current setting of the rotor in slot I. */
+    int setting(int i) {
+        return _settings[i];
     }
 
     /** Set the plugboard to PLUGBOARD. */
@@ -116,83 +186,603 @@ class Machine {
             throw error("inconsistent alphabet btwn plugboard and machine");
         }
         _plugboard = plugboard;
+        _cacheChecked = false;
+    }
+
+    /** Cache the combined permutation of each rotor state I pass through,
+     *  using at most about BYTES bytes of memory and discarding states not
+     *  used recently, approximately, beyond that (see StateCache).  A BYTES of 0 disables the
+     *  cache. */
+    void setStateCache(long bytes) {
+        if (bytes <= 0) {
+            _stateCache = null;
+            return;
+        }
+        _stateCache = new StateCache(_alphabet.size(), bytes);
+        _cacheChecked = false;
     }
 
     /** Returns the result of converting the input character C (as an
      *  index in the range 0..alphabet size - 1), after first advancing
-     *  the machine. */
+     *  the machine.  Its statistics are kept in my own counters until the
+     *  next flushStats(), which the bulk conversions call for themselves;
+     *  callers of this method alone must call it before reading Stats. */
     int convert(int c) {
-        advancer(_numRotors - 1, true, _numPawls);
+        if (Stats.ENABLED) {
+            _statChars += 1;
+        }
+        advancer();
+        int result;
+        if (_stateCache != null && _stateIdFits) {
+            result = stateTable()[c];
+        } else {
+            result = encode(c);
+        }
+        if (_trace != null) {
+            trace(c, result);
+        }
+        return result;
+    }
+
+    /** Record in my trace, if this keystroke is sampled, that it
+     *  converted alphabet index IN to OUT. */
+    private void trace(int in, int out) {
+        _keystrokes += 1;
+        _traceCountdown -= 1;
+        if (_traceCountdown <= 0) {
+            _traceCountdown = _trace.getSampling();
+            _trace.record(_keystrokes, stateId(), in, out);
+        }
+    }
+
+    /** Record one keystroke in every TRACE.getSampling() into TRACE, or
+     *  stop tracing if TRACE is null.  Keystrokes are numbered from 1
+     *  starting now, and the first is recorded.  Copies of me made by
+     *  copy() are not traced, and convertParallel() does not convert in
+     *  parallel while I am traced. */
+    void setTrace(KeyTrace trace) {
+        _trace = trace;
+        _keystrokes = 0;
+        _traceCountdown = 1;
+    }
+
+    /** Returns the result of converting the input character C (as an
+     *  index in the range 0..alphabet size - 1) at the current rotor
+     *  positions, without advancing. */
+    private int encode(int c) {
         c = _plugboard.permute(c);
-        for (int i = _numRotors - 1; i != 0; i--) {
-            c = _myRotors.get("Rotor" + i).convertForward(c);
+        for (int i = _numRotors - 1; i >= _firstMoving; i--) {
+            c = _slots[i].convertForward(c, _settings[i]);
         }
-        c = _myRotors.get("Rotor0").convertForward(c);
-        for (int j = 1; j < _numRotors; j++) {
-            c = _myRotors.get("Rotor" + j).convertBackward(c);
+        c = _folded.permute(c);
+        for (int j = _firstMoving; j < _numRotors; j++) {
+            c = _slots[j].convertBackward(c, _settings[j]);
         }
         c = _plugboard.invert(c);
         return c;
     }
-    /** advances rotors based on rotor num (decreasing)
-     *  and if pawl is touching rotor.
-     *  @param i is index of current rotor
-     *  @param pawlTouchMe is true iff previous rotor
-     *  is at notch or if rotor is rightmost rotor
-     *  @param pawlLeft is how many pawls remain to move rotors
-     *  */
-    void advancer(int i, boolean pawlTouchMe, int pawlLeft) {
-        Rotor me = _myRotors.get("Rotor" + i);
-        if (i == 0 | pawlLeft == 0) {
+    /** Advance my rotors as for one keystroke.  Rotors are visited from
+     *  right to left while pawls remain; the rightmost always moves, and
+     *  each rotor at a notch moves the rotor to its left and also itself
+     *  (unless its left neighbor is the reflector, in which case it only
+     *  moves when the rotor to its right is at a notch).  Every decision
+     *  depends only on positions before the step, so one pass suffices.
+     *  If Stats.ENABLED, the movements are counted in that same pass; with
+     *  a successor table, only when a rotor other than the rightmost moves
+     *  is the pass made at all. */
+    void advancer() {
+        if (_successors != null) {
+            int next = _successors[(int) _stateId];
+            if (next < 0) {
+                next &= Integer.MAX_VALUE;
+                if (Stats.ENABLED) {
+                    step(_settings, true);
+                } else {
+                    decodeState(next, _settings);
+                }
+            } else if (_firstMoving < _numRotors) {
+                if (Stats.ENABLED && _slots[_numRotors - 1].rotates()) {
+                    _statSteps += 1;
+                }
+                advance(_numRotors - 1);
+            }
+            _stateId = next;
             return;
         }
-        if (me.atNotch())  {
-            advancer(i - 1, true, pawlLeft - 1);
-            int j = i - 1;
-            if (!_myRotors.get("Rotor" + j).reflecting()) {
-                me.advance();
-            } else if (pawlTouchMe) {
-                me.advance();
-            }
-        } else if (pawlTouchMe) {
-            advancer(i - 1, false, pawlLeft - 1);
-            me.advance();
-        } else {
-            advancer(i - 1, false, pawlLeft - 1);
+        step(_settings, Stats.ENABLED);
+    }
+
+    /** Advance the rotors whose settings, indexed by slot, are SETTINGS
+     *  as for one keystroke (see advancer()), adding the movements to my
+     *  statistics iff COUNT. */
+    private void step(int[] settings, boolean count) {
+        boolean pawlTouchMe = true;
+        for (int i = _numRotors - 1; i >= _lowestPawl; i--) {
+            boolean notch = _slots[i].atNotch(settings[i]);
+            if ((pawlTouchMe || notch && _selfAdvance[i])
+                && _slots[i].rotates()) {
+                settings[i] += 1;
+                if (settings[i] == _alphabet.size()) {
+                    settings[i] = 0;
+                }
+                if (count) {
+                    _statSteps += 1;
+                    if (!pawlTouchMe) {
+                        _statDoubleSteps += 1;
+                    }
+                }
+            }
+            pawlTouchMe = notch;
+        }
+    }
+
+    /** Add the counts of my statistics gathered since the last call to
+     *  Stats, and clear them. */
+    void flushStats() {
+        if (Stats.ENABLED) {
+            Stats.CHARS.add(_statChars);
+            Stats.STEPS.add(_statSteps);
+            Stats.DOUBLE_STEPS.add(_statDoubleSteps);
+            _statChars = _statSteps = _statDoubleSteps = 0;
+        }
+    }
+
+    /** Advance my rotors as for N keystrokes, as if by calling advancer()
+     *  N times.  If I am traced, the N keystrokes are counted but none of
+     *  them is recorded, and the ones after them are sampled as if they
+     *  had been typed. */
+    void jumpAhead(long n) {
+        _settings = stateAt(n);
+        syncSuccessors();
+        if (_trace != null) {
+            _keystrokes += n;
+            if (n >= _traceCountdown) {
+                int sampling = _trace.getSampling();
+                _traceCountdown = sampling
+                    - (int) ((n - _traceCountdown) % sampling);
+            } else {
+                _traceCountdown -= (int) n;
+            }
+        }
+    }
+
+    /** Return the settings my rotors would have, indexed by slot, after
+     *  N more keystrokes, without changing my state.  When every moving
+     *  rotor that needs it has no two adjacent notches, the position of
+     *  each rotor is counted directly from the keystrokes at which its
+     *  neighbor to the right is at a notch.  That takes one pass over the
+     *  rotors from right to left, in which rotor I needs the counts of
+     *  its right neighbor at N, N - 1, ..., N - (I - _firstMoving + 1):
+     *  O(R^2) time in all for R moving rotors, independent of N.
+     *  Otherwise the machine is stepped N times. */
+    int[] stateAt(long n) {
+        if (n < 0) {
+            throw error("cannot step a machine backwards");
+        }
+        int[] result = _settings.clone();
+        if (!canJump()) {
+            for (long k = 0; k < n; k += 1) {
+                step(result, false);
+            }
+            return result;
+        }
+        long[] touch = null;
+        for (int i = _numRotors - 1; i >= _firstMoving; i -= 1) {
+            touch = touches(i, n, touch);
+            result[i] = positionAfter(i, n, touch);
+        }
+        return result;
+    }
+
+    /** Returns true iff positionAfter() applies to my current rotors:
+     *  every moving rotor whose notches move another rotor, or that moves
+     *  itself at a notch, has isolated notches. */
+    private boolean canJump() {
+        for (int i = _firstMoving; i < _numRotors; i += 1) {
+            MovingRotor r = (MovingRotor) _slots[i];
+            boolean needed = i > _firstMoving
+                || i < _numRotors - 1 && _selfAdvance[i];
+            if (needed && !r.isolatedNotches()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the position of the rotor in moving slot I after N more
+     *  keystrokes, where TOUCH is as returned by touches(I, N, ...).
+     *  Requires canJump(). */
+    private int positionAfter(int i, long n, long[] touch) {
+        MovingRotor r = (MovingRotor) _slots[i];
+        int size = _alphabet.size();
+        int q = _settings[i];
+        if (i == _numRotors - 1) {
+            return (int) ((q + n % size) % size);
+        }
+        if (!_selfAdvance[i]) {
+            return (int) ((q + touch[0] % size) % size);
+        }
+        if (n == 0) {
+            return q;
+        }
+        int start = r.openRank(firstOpen(i));
+        long k = openMoves(i, touch, 0);
+        if (k == 0) {
+            return firstOpen(i);
+        }
+        boolean lastMoveNow = openMoves(i, touch, 1) < k;
+        if (lastMoveNow
+            && r.notchesPassed(start, k) > r.notchesPassed(start, k - 1)) {
+            return (r.openPosition(start, k - 1) + 1) % size;
+        }
+        return r.openPosition(start, k);
+    }
+
+    /** Returns an array whose element D is the number of the next N - D
+     *  keystrokes (none if N - D <= 0) at which the rotor in moving
+     *  slot I is moved by its pawl (every keystroke, for the rightmost
+     *  rotor), for 0 <= D <= I - _firstMoving + 1.  RIGHT is the
+     *  corresponding array for slot I + 1 (unused for the rightmost
+     *  slot). */
+    private long[] touches(int i, long n, long[] right) {
+        long[] result = new long[i - _firstMoving + 2];
+        for (int d = 0; d < result.length; d += 1) {
+            long t = n - d;
+            if (t <= 0) {
+                result[d] = 0;
+            } else if (i == _numRotors - 1) {
+                result[d] = t;
+            } else {
+                result[d] = notchTimes(i + 1, t, right, d);
+            }
+        }
+        return result;
+    }
+
+    /** Returns the number of the next T = N - D > 0 keystrokes before
+     *  which the rotor in moving slot I is at a notch, where TOUCH is as
+     *  returned by touches(I, N, ...).  Requires canJump(). */
+    private long notchTimes(int i, long t, long[] touch, int d) {
+        MovingRotor r = (MovingRotor) _slots[i];
+        int q = _settings[i];
+        if (i == _numRotors - 1) {
+            return r.notchesFrom(q, t);
+        }
+        int start = r.openRank(firstOpen(i));
+        return (r.atNotch(q) ? 1 : 0)
+            + r.notchesPassed(start, openMoves(i, touch, d + 1));
+    }
+
+    /** Returns the position without a notch at which the self-advancing
+     *  rotor in moving slot I rests after the first keystroke, ignoring
+     *  any later moves.  A rotor that starts at a notch steps off it at
+     *  once, and with isolated notches lands on a position without
+     *  one. */
+    private int firstOpen(int i) {
+        int q = _settings[i];
+        return _slots[i].atNotch(q) ? (q + 1) % _alphabet.size() : q;
+    }
+
+    /** Returns the number of the next N - D keystrokes at which the
+     *  self-advancing rotor in moving slot I is moved by its pawl from
+     *  a position without a notch, where TOUCH is as returned by
+     *  touches(I, N, ...).  Each such move takes it to its next position
+     *  without a notch, stopping on the notch between for one keystroke
+     *  if there is one.  A pawl move at the first keystroke when it
+     *  starts at a notch coincides with its own step. */
+    private long openMoves(int i, long[] touch, int d) {
+        long k = touch[d];
+        if (k > 0 && _slots[i].atNotch(_settings[i]) && touchedFirst(i)) {
+            k -= 1;
+        }
+        return k;
+    }
+
+    /** Returns true iff the rotor in moving slot I is moved by its pawl
+     *  at the next keystroke. */
+    private boolean touchedFirst(int i) {
+        return i == _numRotors - 1
+            || _slots[i + 1].atNotch(_settings[i + 1]);
+    }
+
+    /** Returns the permutation of the whole machine at its current rotor
+     *  positions, from the state cache if possible. */
+    private int[] stateTable() {
+        if (!_cacheChecked) {
+            checkCache();
+        }
+        long id = stateId();
+        int[] table = _stateCache.get(id);
+        if (table == null) {
+            table = _stateCache.put(id);
+            for (int c = 0; c < table.length; c++) {
+                table[c] = encode(c);
+            }
+        }
+        return table;
+    }
+
+    /** Clear the state cache unless the entries in it were computed for
+     *  my current rotors, stationary rotor settings and plugboard. */
+    private void checkCache() {
+        int[] fixed = Arrays.copyOf(_settings, _firstMoving);
+        if (!Arrays.equals(_slots, _cachedSlots)
+                || !Arrays.equals(fixed, _cachedSettings)
+                || !_plugboard.equals(_cachedPlugboard)) {
+            _stateCache.clear();
+            _cachedSlots = _slots.clone();
+            _cachedSettings = fixed;
+            _cachedPlugboard = _plugboard;
+        }
+        _cacheChecked = true;
+    }
+
+    /** Returns a number identifying the positions of my moving rotors,
+     *  read as the digits, most significant first, of a base
+     *  alphabet-size numeral.  The positions of the other rotors never
+     *  change as I step.  Distinct positions have distinct ids only if
+     *  stateCount() is positive. */
+    long stateId() {
+        if (_successors != null) {
+            return _stateId;
+        }
+        return encodeState(_settings);
+    }
+
+    /** Returns the state id of the rotor settings SETTINGS, indexed by
+     *  slot, as for stateId(). */
+    long encodeState(int[] settings) {
+        long id = 0;
+        for (int i = _firstMoving; i < _numRotors; i++) {
+            id = id * _alphabet.size() + settings[i];
+        }
+        return id;
+    }
+
+    /** Set the settings of the moving rotors in SETTINGS, indexed by
+     *  slot, to those with state id ID.  Requires 0 <= ID <
+     *  stateCount(). */
+    void decodeState(long id, int[] settings) {
+        int size = _alphabet.size();
+        for (int i = _numRotors - 1; i >= _firstMoving; i--) {
+            settings[i] = (int) (id % size);
+            id /= size;
+        }
+    }
+
+    /** Set my moving rotors to the positions with state id ID. */
+    void setStateId(long id) {
+        long count = stateCount();
+        if (count <= 0 || id < 0 || id >= count) {
+            throw error("state id %d out of range", id);
+        }
+        decodeState(id, _settings);
+        syncSuccessors();
+    }
+
+    /** Returns the number of positions of my moving rotors, or -1 if that
+     *  is too large for state ids to be distinct. */
+    long stateCount() {
+        return _stateIdFits ? countStates() : -1;
+    }
+
+    /** Returns the number of positions of my moving rotors, computed
+     *  exactly, or -1 if that exceeds Long.MAX_VALUE. */
+    private long countStates() {
+        long count = 1;
+        for (int i = _firstMoving; i < _numRotors; i++) {
+            if (count > Long.MAX_VALUE / _alphabet.size()) {
+                return -1;
+            }
+            count *= _alphabet.size();
+        }
+        return count;
+    }
+
+    /** Precompute the state id following each state of my moving rotors,
+     *  so that stepping is a single table lookup, whenever the table for
+     *  the current rotors needs at most about BYTES bytes.  A BYTES of 0
+     *  turns this off. */
+    void setSuccessorTable(long bytes) {
+        _successorBudget = Math.max(0, bytes);
+        _successorSlots = null;
+        syncSuccessors();
+    }
+
+    /** Make _successors the successor table for my current rotors if the
+     *  budget allows, or null, and set _stateId to match my settings.
+     *  Must be called whenever my rotors or settings change other than
+     *  by stepping. */
+    private void syncSuccessors() {
+        if (_successorBudget == 0 || _slots == null) {
+            _successors = null;
+            return;
+        }
+        if (!Arrays.equals(_slots, _successorSlots)) {
+            long count = stateCount();
+            _successors = null;
+            if (count > 0 && count <= Integer.MAX_VALUE
+                && 4 * count <= _successorBudget) {
+                _successors = successors((int) count);
+            }
+            _successorSlots = _slots.clone();
+        }
+        if (_successors != null) {
+            _stateId = encodeState(_settings);
+        }
+    }
+
+    /** Return the successor table for COUNT states of my current rotors.
+     *  Entry K is the state id after a keystroke in state K, with the
+     *  sign bit set if any but the rightmost rotor moves. */
+    private int[] successors(int count) {
+        int[] result = new int[count];
+        int[] settings = _settings.clone();
+        int[] next = new int[_numRotors];
+        for (int k = 0; k < count; k += 1) {
+            decodeState(k, settings);
+            System.arraycopy(settings, 0, next, 0, _numRotors);
+            step(next, false);
+            result[k] = (int) encodeState(next);
+            for (int i = _firstMoving; i < _numRotors - 1; i += 1) {
+                if (next[i] != settings[i]) {
+                    result[k] |= Integer.MIN_VALUE;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Advance the rotor in slot I one position, if it can move. */
+    private void advance(int i) {
+        if (_slots[i].rotates()) {
+            _settings[i] += 1;
+            if (_settings[i] == _alphabet.size()) {
+                _settings[i] = 0;
+            }
         }
     }
 
     /** Returns the encoding/decoding of MSG, updating the state of
      *  the rotors accordingly. */
     String convert(String msg) {
-        msg = msg.replaceAll("\\s", "");
         char[] tmsg = msg.toCharArray();
-        for (int i = 0; i < tmsg.length; i++) {
-            if (_alphabet.contains(tmsg[i])) {
-                tmsg[i] = _alphabet.toChar(
-                        convert(_alphabet.toInt(tmsg[i])));
+        int len = convert(tmsg, 0, tmsg.length, tmsg, 0);
+        return wordSize(new String(tmsg, 0, len));
+    }
+
+    /** Convert the characters SRC[START .. END-1] as for convert(String),
+     *  without grouping the result: whitespace is dropped, characters in
+     *  my alphabet are encoded, and any others are copied unchanged.  The
+     *  results go to DEST starting at POS.  DEST may be SRC if POS <=
+     *  START.  Returns the number of characters written. */
+    int convert(char[] src, int start, int end, char[] dest, int pos) {
+        int p = pos;
+        for (int i = start; i < end; i++) {
+            char ch = src[i];
+            if (isWhitespace(ch)) {
+                continue;
             }
+            int c = _alphabet.index(ch);
+            dest[p++] = c < 0 ? ch : _alphabet.toChar(convert(c));
+        }
+        flushStats();
+        return p - pos;
+    }
 
+    /** Returns the encoding/decoding of MSG, as for convert(String), but
+     *  converting pieces of long messages in parallel. */
+    String convertParallel(String msg) {
+        char[] src = msg.toCharArray();
+        char[] dest = new char[src.length];
+        int len = convertParallel(src, 0, src.length, dest, 0);
+        return wordSize(new String(dest, 0, len));
+    }
+
+    /** Convert SRC[START .. END-1] into DEST starting at POS, as for
+     *  convert(char[], int, int, char[], int), except that DEST may not
+     *  overlap the input.  The input is split into chunks of
+     *  PARALLEL_CHUNK characters, which are converted in parallel in the
+     *  common fork/join pool, each by a copy of this machine whose rotors
+     *  are set by stateAt() to where they will be at the start of that
+     *  chunk.  A traced machine converts sequentially instead, so that
+     *  its trace records every sampled keystroke in order.  Returns the
+     *  number of characters written. */
+    int convertParallel(char[] src, int start, int end,
+                        char[] dest, int pos) {
+        int chunks = (end - start + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+        if (chunks < 2 || !canJump() || _trace != null) {
+            return convert(src, start, end, dest, pos);
+        }
+        long[] keys = new long[chunks + 1];
+        int[] outs = new int[chunks + 1];
+        IntStream.range(0, chunks).parallel().forEach(j -> {
+            int last = Math.min(end, start + (j + 1) * PARALLEL_CHUNK);
+            for (int i = start + j * PARALLEL_CHUNK; i < last; i += 1) {
+                char ch = src[i];
+                if (!isWhitespace(ch)) {
+                    outs[j + 1] += 1;
+                    if (_alphabet.index(ch) >= 0) {
+                        keys[j + 1] += 1;
+                    }
+                }
+            }
+        });
+        for (int j = 0; j < chunks; j += 1) {
+            keys[j + 1] += keys[j];
+            outs[j + 1] += outs[j];
+        }
+        IntStream.range(0, chunks).parallel().forEach(j -> {
+            Machine copy = new Machine(this, stateAt(keys[j]));
+            int first = start + j * PARALLEL_CHUNK;
+            int last = Math.min(end, first + PARALLEL_CHUNK);
+            copy.convert(src, first, last, dest, pos + outs[j]);
+        });
+        jumpAhead(keys[chunks]);
+        return outs[chunks];
+    }
+
+    /** Convert the characters SRC[START .. END-1] as for
+     *  convert(String), writing the results to the current line of OUT
+     *  as they are produced. */
+    void convert(char[] src, int start, int end, GroupWriter out) {
+        for (int i = start; i < end; i++) {
+            char ch = src[i];
+            if (isWhitespace(ch)) {
+                continue;
+            }
+            int c = _alphabet.index(ch);
+            out.write(c < 0 ? ch : _alphabet.toChar(convert(c)));
+        }
+        flushStats();
+    }
+
+    /** Convert the remaining characters of SRC into DEST as for
+     *  convert(char[], int, int, char[], int), advancing the positions
+     *  of both buffers. */
+    void convert(CharBuffer src, CharBuffer dest) {
+        while (src.hasRemaining()) {
+            char ch = src.get();
+            if (isWhitespace(ch)) {
+                continue;
+            }
+            int c = _alphabet.index(ch);
+            dest.put(c < 0 ? ch : _alphabet.toChar(convert(c)));
+        }
+        flushStats();
+    }
+
+    /** Replace each of the alphabet indices CODES[START .. END-1] with its
+     *  encoding, as for convert(int). */
+    void convert(int[] codes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            codes[i] = convert(codes[i]);
         }
-        msg = String.valueOf(tmsg);
-        msg = wordSize(msg);
-        return msg;
+        flushStats();
+    }
+
+    /** Returns true iff CH is whitespace as matched by the regular
+     *  expression \s. */
+    static boolean isWhitespace(char ch) {
+        return ch == ' ' || ch == '\n' || ch == '\t' || ch == '\r'
+            || ch == '\f' || ch == '\u000B';
     }
 
     /** returns a modified string that has words of size 5.
      * @param str is string to be modified*/
     String wordSize(String str) {
-        if (str.length() < 6) {
-            return str;
-        } else {
-            return str.substring(0, 5) + " " + wordSize(str.substring(5));
+        StringBuilder result =
+            new StringBuilder(str.length() + str.length() / 5);
+        GroupWriter out = new GroupWriter(result);
+        for (int i = 0; i < str.length(); i++) {
+            out.write(str.charAt(i));
         }
-
+        return result.toString();
     }
 
-    /** returns _myRotors. */
-    HashMap myRotors() {
-        return _myRotors;
+    /** returns the rotors in my slots, reflector first. */
+    Rotor[] myRotors() {
+        return _slots;
     }
 
     /** returns _alphabet. */
@@ -208,11 +798,20 @@ class Machine {
         return _numPawls;
     }
 
-    /** returns _allRotors. */
-    Collection allRotors() {
-        return _allRotors;
+    /** returns descriptions of all the rotors available to me, without
+     *  building any of them. */
+    List<RotorDescription> allRotors() {
+        return _spec.descriptions();
+    }
+
+    /** returns the specification I was made from. */
+    MachineSpec spec() {
+        return _spec;
     }
 
+    /** My alphabet, slot and pawl counts and available rotors. */
+    private final MachineSpec _spec;
+
     /** Common alphabet of my rotors. */
     private final Alphabet _alphabet;
 
@@ -222,12 +821,89 @@ class Machine {
     /** variables for number of pawls. */
     private final int _numPawls;
 
-    /** general list containing all rotors. */
-    private final ArrayList _allRotors;
+    /** The rotors in my slots; _slots[0] is the reflector. */
+    private Rotor[] _slots;
+
+    /** Current setting of the rotor in each slot. */
+    private int[] _settings;
+
+    /** _selfAdvance[I] is true iff the rotor in slot I moves itself when
+     *  it is at a notch (that is, its left neighbor is not the
+     *  reflector). */
+    private boolean[] _selfAdvance;
 
-    /** HashMap of all of Machine's rotors. */
-    private HashMap<String, Rotor> _myRotors;
+    /** Leftmost slot reached by a pawl. */
+    private int _lowestPawl;
+
+    /** Leftmost slot whose rotor can move; the slots to its left are
+     *  folded into _folded. */
+    private int _firstMoving;
+
+    /** The reflector combined with the rotors in slots 1 .. _firstMoving
+     *  - 1 at their current settings. */
+    private Permutation _folded;
 
     /** permutation representing the plugboard. */
     private Permutation _plugboard;
+
+    /** Number of input characters converted by each task in
+     *  convertParallel. */
+    static final int PARALLEL_CHUNK = 1 << 13;
+
+    /** Combined machine permutations by stateId(), or null if caching is
+     *  disabled. */
+    private StateCache _stateCache;
+
+    /** True iff stateId() is distinct for all positions of my moving
+     *  rotors. */
+    private boolean _stateIdFits;
+
+    /** Approximate memory budget for _successors, or 0 if successor
+     *  tables are not used. */
+    private long _successorBudget;
+
+    /** Successor table for the rotors in _successorSlots (see
+     *  successors()), or null if stepping does not use one. */
+    private int[] _successors;
+
+    /** The slots for which _successors was computed. */
+    private Rotor[] _successorSlots;
+
+    /** State id of my current settings.  Only maintained while _successors
+     *  is not null. */
+    private long _stateId;
+
+    /** Characters I have converted since my statistics were last added
+     *  to Stats. */
+    private long _statChars;
+
+    /** Rotor movements since my statistics were last added to Stats. */
+    private long _statSteps;
+
+    /** Rotor movements at a rotor's own notch, without a push from its
+     *  right, since my statistics were last added to Stats. */
+    private long _statDoubleSteps;
+
+    /** Trace of my sampled keystrokes, or null if I am not traced. */
+    private KeyTrace _trace;
+
+    /** Number of keystrokes since tracing started. */
+    private long _keystrokes;
+
+    /** Number of keystrokes until the next one recorded in _trace. */
+    private int _traceCountdown;
+
+    /** False if the rotors, settings or plugboard may have changed since
+     *  the state cache was last checked against them. */
+    private boolean _cacheChecked;
+
+    /** The slots for which the state cache entries were computed. */
+    private Rotor[] _cachedSlots;
+
+    /** The settings of the stationary rotors (and reflector) for which
+     *  the state cache entries were computed. */
+    private int[] _cachedSettings;
+
+    /** The plugboard for which the state cache entries were computed. */
+    private Permutation _cachedPlugboard;
 }
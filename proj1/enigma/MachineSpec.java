@@ -0,0 +1,110 @@
+package enigma;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import static enigma.EnigmaException.*;
+
+/** The unchanging description of an Enigma machine: its alphabet, its
+ *  numbers of rotor slots and pawls, and the rotors available to it,
+ *  each compiled the first time a machine uses it.  A MachineSpec is
+ *  never otherwise modified after construction, so any number of
+ *  Machines, each holding only its own slot choices, rotor positions and
+ *  plugboard, may share one from any number of threads without locking.
+ *  Its rotors are frozen (see Rotor.freeze), so that set() and advance()
+ *  fail on them; machines keep the positions of their rotors
+ *  themselves.
+ *  @author Jeremy Lazo
+ */
+class MachineSpec {
+
+    /** A specification of machines with alphabet ALPHA, 1 < NUMROTORS
+     *  rotor slots and 0 <= PAWLS < NUMROTORS pawls, whose available
+     *  rotors are frozen copies of ROTORS (see Rotor.copy).  ROTORS
+     *  themselves are left as they are, but are not used by my machines.
+     *  Where two rotors have the same name, the first is used. */
+    MachineSpec(Alphabet alpha, int numRotors, int pawls,
+                Collection<Rotor> rotors) {
+        this(alpha, numRotors, pawls, describe(rotors));
+    }
+
+    /** A specification as for MachineSpec(Alphabet, int, int,
+     *  Collection), but whose available rotors are described by ROTORS
+     *  and built on first use. */
+    MachineSpec(Alphabet alpha, int numRotors, int pawls,
+                RotorDescription[] rotors) {
+        _alphabet = alpha;
+        _numRotors = numRotors;
+        _numPawls = pawls;
+        _rotors = rotors.clone();
+        _byName = new HashMap<>();
+        for (RotorDescription r : _rotors) {
+            _byName.putIfAbsent(r.name(), r);
+        }
+    }
+
+    /** Return descriptions of copies of the already built ROTORS. */
+    private static RotorDescription[] describe(Collection<Rotor> rotors) {
+        RotorDescription[] result = new RotorDescription[rotors.size()];
+        int i = 0;
+        for (Rotor r : rotors) {
+            result[i++] = new RotorDescription(r.copy());
+        }
+        return result;
+    }
+
+    /** Return a new machine of this specification, with no rotors
+     *  inserted. */
+    Machine newMachine() {
+        return new Machine(this);
+    }
+
+    /** Return the alphabet of my machines. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the number of rotor slots of my machines. */
+    int numRotors() {
+        return _numRotors;
+    }
+
+    /** Return the number of pawls of my machines. */
+    int numPawls() {
+        return _numPawls;
+    }
+
+    /** Return the descriptions of the available rotors, in the order
+     *  given.  No rotor is built by this call. */
+    List<RotorDescription> descriptions() {
+        return Collections.unmodifiableList(Arrays.asList(_rotors));
+    }
+
+    /** Return the available rotor named NAME, building it if this is its
+     *  first use. */
+    Rotor rotor(String name) {
+        RotorDescription r = _byName.get(name);
+        if (r == null) {
+            throw error("a rotor not in conf");
+        }
+        return r.rotor();
+    }
+
+    /** Common alphabet of my rotors. */
+    private final Alphabet _alphabet;
+
+    /** Number of rotor slots. */
+    private final int _numRotors;
+
+    /** Number of pawls. */
+    private final int _numPawls;
+
+    /** Descriptions of all available rotors. */
+    private final RotorDescription[] _rotors;
+
+    /** The descriptions of the available rotors by name. */
+    private final HashMap<String, RotorDescription> _byName;
+}
@@ -5,8 +5,14 @@ import org.junit.Rule;
 import org.junit.rules.Timeout;
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Random;
 
 import static enigma.TestUtils.*;
 
@@ -92,10 +98,9 @@ public class MachineTest {
 
     }
 
-    public void advanc(Machine mach, HashMap hash, int[] arr) {
+    public void advanc(Machine mach, int[] arr) {
         for (int i = 0; i < arr.length; i++) {
-            Rotor r = (Rotor) mach.myRotors().get("Rotor" + i);
-            assertEquals("advance method is wrong", arr[i], r.setting());
+            assertEquals("advance method is wrong", arr[i], mach.setting(i));
         }
     }
 
@@ -108,7 +113,7 @@ public class MachineTest {
         funfMaschine.setRotors("AAAA");
         Permutation perm = new Permutation("(CK) (MX) (LV)", _alph);
         funfMaschine.setPlugboard(perm);
-        assertEquals("Wrong...", "CPKUR MPUXR HEGBW CUQTJ",
+        assertEquals("Wrong...", "CPKUR LPUVX REGBW CUQTJ",
                 funfMaschine.convert("WHERE DID ALL THE FISH GO"));
     }
 
@@ -135,10 +140,10 @@ public class MachineTest {
         Permutation perm = new Permutation("", _vowels);
         vow.setPlugboard(perm);
         int[] arr = {0, 0, 0};
-        advanc(vow, vow.myRotors(), arr);
+        advanc(vow, arr);
         assertEquals("Wrong...", "UEEU", vow.convert("AAAA"));
         arr = new int[] {0, 0, 4};
-        advanc(vow, vow.myRotors(), arr);
+        advanc(vow, arr);
     }
 
     @Test
@@ -151,25 +156,499 @@ public class MachineTest {
         Permutation perm = new Permutation("(CK) (MX) (LV)", _alph);
         funfMaschine.setPlugboard(perm);
         funfMaschine.convert('C');
-        Rotor row = (Rotor) funfMaschine.myRotors().get("Rotor4");
+        Rotor row = funfMaschine.myRotors()[4];
         int[] arr = new int[] {0, 0, 0, 0, 1};
-        advanc(funfMaschine, funfMaschine.myRotors(), arr);
+        advanc(funfMaschine, arr);
         funfMaschine.convert('C');
         arr = new int[] {0, 0, 0, 0, 2};
-        advanc(funfMaschine, funfMaschine.myRotors(), arr);
+        advanc(funfMaschine, arr);
         funfMaschine.convert('C');
         arr = new int[] {0, 0, 0, 0, 3};
-        advanc(funfMaschine, funfMaschine.myRotors(), arr);
+        advanc(funfMaschine, arr);
         funfMaschine.convert('C');
         arr = new int[] {0, 0, 0, 0, 4};
-        advanc(funfMaschine, funfMaschine.myRotors(), arr);
+        advanc(funfMaschine, arr);
         funfMaschine.convert('C');
         arr = new int[] {0, 0, 0, 0, 5};
-        advanc(funfMaschine, funfMaschine.myRotors(), arr);
+        advanc(funfMaschine, arr);
 
 
     }
 
+    @Test
+    public void checkDoubleStep() {
+        constructAllRotors();
+        Machine stepper = new Machine(_alph, 5, 3, allRotors);
+        String[] str = {"B", "Beta", "I", "II", "III"};
+        stepper.insertRotors(str);
+        stepper.setRotors("AADU");
+        stepper.setPlugboard(new Permutation("", _alph));
+        stepper.convert(0);
+        advanc(stepper, new int[] {0, 0, 0, 3, 21});
+        stepper.convert(0);
+        advanc(stepper, new int[] {0, 0, 0, 4, 22});
+        stepper.convert(0);
+        advanc(stepper, new int[] {0, 0, 1, 5, 23});
+        stepper.convert(0);
+        advanc(stepper, new int[] {0, 0, 1, 5, 24});
+    }
+
+    @Test
+    public void checkStateCache() {
+        constructAllRotors();
+        Machine plain = new Machine(_alph, 5, 3, allRotors);
+        Machine cached = new Machine(_alph, 5, 3, allRotors);
+        cached.setStateCache(1 << 16);
+        Machine tiny = new Machine(_alph, 5, 3, allRotors);
+        tiny.setStateCache(1);
+        String msg = "FROM HIS SHOULDER HIAWATHA TOOK THE CAMERA OF ROSEWOOD";
+        for (String rotors : new String[] {"AXLE", "AXLE", "BCDZ", "AXLE"}) {
+            for (Machine m : new Machine[] {plain, cached, tiny}) {
+                m.insertRotors(new String[] {"B", "Gamma", "VI", "II", "I"});
+                m.setRotors(rotors);
+                m.setPlugboard(new Permutation("(AQ) (EP)", _alph));
+            }
+            String expected = plain.convert(msg);
+            assertEquals("cached machine differs", expected,
+                    cached.convert(msg));
+            assertEquals("machine with full cache differs", expected,
+                    tiny.convert(msg));
+        }
+    }
+
+    @Test
+    public void checkStateCacheCapacity() {
+        long entry = StateCache.ENTRY_OVERHEAD + 4 * 26;
+        assertEquals("memory budget not used", 1000,
+                new StateCache(26, 1000 * entry).capacity());
+        assertEquals("memory budget exceeded", 1000,
+                new StateCache(26, 1003 * entry).capacity());
+        assertEquals("too small for one set", StateCache.WAYS,
+                new StateCache(26, 1).capacity());
+    }
+
+    @Test
+    public void checkBulkConvert() {
+        constructAllRotors();
+        Machine byString = new Machine(_alph, 5, 3, allRotors);
+        Machine byArray = new Machine(_alph, 5, 3, allRotors);
+        Machine byBuffer = new Machine(_alph, 5, 3, allRotors);
+        for (Machine m : new Machine[] {byString, byArray, byBuffer}) {
+            m.insertRotors(new String[] {"B", "Beta", "III", "IV", "I"});
+            m.setRotors("AXLE");
+            m.setPlugboard(new Permutation("(HQ) (EX) (IP)", _alph));
+        }
+        String msg = "FROM HIS\tSHOULDER, HIAWATHA\nTOOK THE CAMERA";
+        String expected = byString.convert(msg).replace(" ", "");
+
+        char[] chars = msg.toCharArray();
+        int len = byArray.convert(chars, 0, chars.length, chars, 0);
+        assertEquals("in-place conversion differs", expected,
+                new String(chars, 0, len));
+
+        CharBuffer out = CharBuffer.allocate(msg.length());
+        byBuffer.convert(CharBuffer.wrap(msg), out);
+        out.flip();
+        assertEquals("buffer conversion differs", expected, out.toString());
+    }
+
+    @Test
+    public void checkLongGrouping() {
+        constructAllRotors();
+        Machine machine = new Machine(_alph, 5, 3, allRotors);
+        StringBuilder msg = new StringBuilder();
+        for (int i = 0; i < 100000; i += 1) {
+            msg.append("ABC");
+        }
+        String grouped = machine.wordSize(msg.toString());
+        assertEquals("wrong grouped length", 300000 + 59999,
+                grouped.length());
+        assertEquals("wrong group", "BCABC", grouped.substring(12, 17));
+    }
+
+    @Test
+    public void checkJumpAhead() {
+        constructAllRotors();
+        allRotors.add(new MovingRotor("Crowded",
+                new Permutation(NAVALA.get("I"), _alph), "YZA"));
+        String[][] configs = {
+            {"B", "Beta", "I", "II", "III"},
+            {"B", "Gamma", "VI", "II", "I"},
+            {"C", "V", "VI", "VII", "VIII"},
+            {"B", "VIII", "VI", "VII"},
+            {"B", "Beta", "II", "Crowded", "VI"},
+        };
+        int[] pawls = {3, 3, 4, 3, 3};
+        Random random = new Random(42);
+        for (int c = 0; c < configs.length; c += 1) {
+            String[] rotors = configs[c];
+            Machine mach =
+                new Machine(_alph, rotors.length, pawls[c], allRotors);
+            mach.insertRotors(rotors);
+            for (int trial = 0; trial < 20; trial += 1) {
+                char[] setting = new char[rotors.length - 1];
+                for (int i = 0; i < setting.length; i += 1) {
+                    setting[i] = alpha.charAt(random.nextInt(26));
+                }
+                mach.setRotors(new String(setting));
+                int steps = random.nextInt(1500);
+                int[] jumped = mach.stateAt(steps);
+                for (int k = 0; k < steps; k += 1) {
+                    mach.advancer();
+                }
+                for (int i = 0; i < rotors.length; i += 1) {
+                    assertEquals("wrong position after " + steps
+                            + " steps from " + new String(setting),
+                            mach.setting(i), jumped[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void checkJumpAheadManyRotors() {
+        Alphabet abc = new Alphabet("ABC");
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        rotors.add(new Reflector("R", new Permutation("(AB)", abc)));
+        String[] names = new String[41];
+        names[0] = "R";
+        for (int i = 1; i < names.length; i += 1) {
+            names[i] = "M" + i;
+            rotors.add(new MovingRotor(names[i], new Permutation("", abc),
+                    i % 2 == 0 ? "A" : "C"));
+        }
+        Machine mach = new Machine(abc, 41, 40, rotors);
+        mach.insertRotors(names);
+        int steps = 20000;
+        int[] jumped = mach.stateAt(steps);
+        for (int k = 0; k < steps; k += 1) {
+            mach.advancer();
+        }
+        for (int i = 0; i < names.length; i += 1) {
+            assertEquals("wrong position of rotor " + i, mach.setting(i),
+                    jumped[i]);
+        }
+    }
+
+    @Test
+    public void checkParallelConvert() {
+        constructAllRotors();
+        Machine serial = new Machine(_alph, 5, 4, allRotors);
+        Machine parallel = new Machine(_alph, 5, 4, allRotors);
+        for (Machine m : new Machine[] {serial, parallel}) {
+            m.insertRotors(new String[] {"B", "VIII", "VI", "II", "VII"});
+            m.setRotors("QMEZ");
+            m.setPlugboard(new Permutation("(AQ) (EP) (TZ)", _alph));
+        }
+        StringBuilder msg = new StringBuilder();
+        for (int i = 0; i < 4000; i += 1) {
+            msg.append("THE SHORE OF GITCHE-GUMEE, ");
+        }
+        assertEquals("parallel conversion differs",
+                serial.convert(msg.toString()),
+                parallel.convertParallel(msg.toString()));
+        for (int i = 0; i < 5; i += 1) {
+            assertEquals("wrong final position", serial.setting(i),
+                    parallel.setting(i));
+        }
+    }
+
+    @Test
+    public void checkSharedSpec() throws InterruptedException {
+        constructAllRotors();
+        final MachineSpec spec = new MachineSpec(_alph, 5, 3, allRotors);
+        final String msg = "FROM HIS SHOULDER HIAWATHA TOOK THE CAMERA";
+        final String[] settings = {"AXLE", "BCDZ", "QQQQ", "ZMZM"};
+        String[] expected = new String[settings.length];
+        for (int t = 0; t < settings.length; t += 1) {
+            Machine m = spec.newMachine();
+            m.insertRotors(new String[] {"B", "Gamma", "VI", "II", "I"});
+            m.setRotors(settings[t]);
+            m.setPlugboard(new Permutation("(AQ) (EP)", _alph));
+            expected[t] = m.convert(msg);
+        }
+        final String[] results = new String[settings.length];
+        Thread[] threads = new Thread[settings.length];
+        for (int t = 0; t < threads.length; t += 1) {
+            final int k = t;
+            threads[t] = new Thread(() -> {
+                Machine m = spec.newMachine();
+                for (int rep = 0; rep < 200; rep += 1) {
+                    m.insertRotors(new String[] {"B", "Gamma", "VI", "II",
+                                                 "I"});
+                    m.setRotors(settings[k]);
+                    m.setPlugboard(new Permutation("(AQ) (EP)", _alph));
+                    results[k] = m.convert(msg);
+                }
+            });
+            threads[t].start();
+        }
+        for (int t = 0; t < threads.length; t += 1) {
+            threads[t].join();
+            assertEquals("machines sharing a spec interfere", expected[t],
+                    results[t]);
+        }
+        for (String name : new String[] {"B", "Gamma", "VI", "II", "I"}) {
+            Rotor r = spec.rotor(name);
+            assertEquals("shared rotor was moved", 0, r.setting());
+            assertTrue("shared rotor not frozen", r.frozen());
+        }
+        try {
+            spec.rotor("I").advance();
+            fail("shared rotor moved");
+        } catch (EnigmaException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void checkCallerRotorsUntouched() {
+        constructAllRotors();
+        Machine mach = new Machine(_alph, 5, 3, allRotors);
+        mach.insertRotors(new String[] {"B", "Beta", "I", "II", "III"});
+        mach.setRotors("AAAA");
+        mach.setPlugboard(new Permutation("", _alph));
+        assertNotSame("caller's rotor used", _III, mach.myRotors()[4]);
+        assertFalse("caller's rotor frozen", _III.frozen());
+        _III.set(7);
+        assertEquals("caller's rotor not settable", 7, _III.setting());
+        assertEquals("caller's rotor moved the machine", "ILBDA AMTAZ",
+                mach.convert("HELLO WORLD"));
+        assertEquals("caller's rotor moved with the machine", 7,
+                _III.setting());
+        assertEquals("machine lost its setting", 10, mach.setting(4));
+    }
+
+    @Test
+    public void checkLazyRotors() {
+        RotorDescription[] rotors = {
+            new RotorDescription("B", 'R', "", NAVALA.get("B"), _alph),
+            new RotorDescription("I", 'M', "Q", NAVALA.get("I"), _alph),
+            new RotorDescription("II", 'M', "E", NAVALA.get("II"), _alph),
+            new RotorDescription("Broken", 'M', "A", "(AB", _alph),
+        };
+        MachineSpec spec = new MachineSpec(_alph, 3, 2, rotors);
+        Machine mach = spec.newMachine();
+        mach.insertRotors(new String[] {"B", "I", "II"});
+        assertSame("rotor not memoized", spec.rotor("I"),
+                mach.myRotors()[1]);
+        assertEquals("wrong rotor count", 4, mach.allRotors().size());
+        for (RotorDescription r : mach.allRotors()) {
+            assertEquals("only used rotors should be built",
+                    !r.name().equals("Broken"), r.built());
+        }
+        try {
+            mach.insertRotors(new String[] {"B", "Broken", "II"});
+            fail("bad rotor description not reported on use");
+        } catch (EnigmaException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void checkCompiledConfig() throws IOException {
+        constructAllRotors();
+        allRotors.removeIf(r -> r.alphabet() != _alph);
+        MachineSpec spec = new MachineSpec(_alph, 5, 3, allRotors);
+        Path file = Files.createTempFile("enigma", ".bin");
+        try {
+            CompiledConfig.write(spec, 1234, file);
+            assertNull("stale compiled config accepted",
+                    CompiledConfig.read(file, 4321));
+            MachineSpec loaded = CompiledConfig.read(file, 1234);
+            assertNotNull("compiled config rejected", loaded);
+            String msg = "FROM HIS SHOULDER HIAWATHA TOOK THE CAMERA";
+            String[] results = new String[2];
+            MachineSpec[] specs = {spec, loaded};
+            for (int i = 0; i < 2; i += 1) {
+                Machine m = specs[i].newMachine();
+                m.insertRotors(new String[] {"C", "Beta", "VIII", "VI", "V"});
+                m.setRotors("AZMY");
+                m.setPlugboard(new Permutation("(AQ) (EP)",
+                        specs[i].alphabet()));
+                results[i] = m.convert(msg);
+            }
+            assertEquals("compiled config converts differently",
+                    results[0], results[1]);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void checkRestore() {
+        constructAllRotors();
+        Machine mach = new Machine(_alph, 5, 3, allRotors);
+        mach.insertRotors(new String[] {"B", "Gamma", "VI", "II", "I"});
+        mach.setRotors("AXLE");
+        mach.setPlugboard(new Permutation("(AQ) (EP)", _alph));
+        Machine saved = mach.copy();
+        String msg = "FROM HIS SHOULDER HIAWATHA TOOK THE CAMERA";
+        String first = mach.convert(msg);
+        mach.insertRotors(new String[] {"C", "Beta", "I", "II", "III"});
+        mach.setRotors("ZZZZ");
+        mach.restore(saved);
+        assertEquals("restored machine differs", first, mach.convert(msg));
+        assertEquals("saved machine was changed", first, saved.convert(msg));
+    }
+
+    @Test
+    public void checkSuccessorTable() {
+        constructAllRotors();
+        Machine plain = new Machine(_alph, 5, 3, allRotors);
+        Machine tabled = new Machine(_alph, 5, 3, allRotors);
+        tabled.setSuccessorTable(1 << 20);
+        for (Machine m : new Machine[] {plain, tabled}) {
+            m.insertRotors(new String[] {"B", "Beta", "VI", "II", "VIII"});
+            m.setRotors("AZDL");
+        }
+        assertEquals("wrong state count", 26 * 26 * 26,
+                tabled.stateCount());
+        assertEquals("wrong state id", (25 * 26 + 3) * 26 + 11,
+                tabled.stateId());
+        for (int k = 0; k < 20000; k += 1) {
+            plain.advancer();
+            tabled.advancer();
+            assertEquals("successor table steps wrongly", plain.stateId(),
+                    tabled.stateId());
+        }
+        for (int i = 0; i < 5; i += 1) {
+            assertEquals("settings not kept up to date", plain.setting(i),
+                    tabled.setting(i));
+        }
+        tabled.setStateId(12345);
+        assertEquals("state id not decoded", 12345, tabled.stateId());
+        assertEquals("wrong decoded setting", 12345 % 26, tabled.setting(4));
+    }
+
+    @Test
+    public void checkKeyTrace() throws IOException {
+        constructAllRotors();
+        Path file = Files.createTempFile("enigma", ".trace");
+        Machine traced = new Machine(_alph, 5, 3, allRotors);
+        Machine plain = new Machine(_alph, 5, 3, allRotors);
+        long[] states = new long[21];
+        int[] outs = new int[21];
+        try {
+            KeyTrace trace = new KeyTrace(4, 3, file);
+            for (Machine m : new Machine[] {traced, plain}) {
+                m.insertRotors(new String[] {"B", "Beta", "III", "IV", "I"});
+                m.setRotors("AXLE");
+                m.setPlugboard(new Permutation("(HQ) (TA)", _alph));
+            }
+            traced.setTrace(trace);
+            for (int k = 1; k <= 20; k += 1) {
+                outs[k] = plain.convert(k % 26);
+                states[k] = plain.stateId();
+                assertEquals("tracing changed conversion", outs[k],
+                        traced.convert(k % 26));
+            }
+            assertEquals("wrong number sampled", 7, trace.getRecorded());
+            trace.dump(file);
+            ByteBuffer dump = ByteBuffer.wrap(Files.readAllBytes(file));
+            assertEquals("bad magic", KeyTrace.MAGIC, dump.getInt());
+            assertEquals("bad version", KeyTrace.VERSION, dump.getInt());
+            assertEquals("bad sampling", 3, dump.getInt());
+            assertEquals("bad record count", 4, dump.getInt());
+            assertEquals("bad total", 7, dump.getLong());
+            for (int k = 10; k <= 19; k += 3) {
+                assertEquals("wrong keystroke", k, dump.getLong());
+                assertEquals("wrong state", states[k], dump.getLong());
+                assertEquals("wrong input", k % 26, dump.getInt());
+                assertEquals("wrong output", outs[k], dump.getInt());
+            }
+            assertFalse("extra trace records", dump.hasRemaining());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /** Return the records of TRACE, dumped to FILE, oldest first, each as
+     *  {keystroke, state id, input, output}. */
+    private ArrayList<long[]> traceRecords(KeyTrace trace, Path file)
+        throws IOException {
+        trace.dump(file);
+        ByteBuffer dump = ByteBuffer.wrap(Files.readAllBytes(file));
+        dump.position(KeyTrace.HEADER_BYTES);
+        ArrayList<long[]> result = new ArrayList<>();
+        while (dump.hasRemaining()) {
+            result.add(new long[] {dump.getLong(), dump.getLong(),
+                                   dump.getInt(), dump.getInt()});
+        }
+        return result;
+    }
+
+    @Test
+    public void checkKeyTraceParallel() throws IOException {
+        constructAllRotors();
+        Path file = Files.createTempFile("enigma", ".trace");
+        Machine[] machs = new Machine[3];
+        KeyTrace[] traces = new KeyTrace[machs.length];
+        try {
+            for (int t = 0; t < machs.length; t += 1) {
+                machs[t] = new Machine(_alph, 5, 3, allRotors);
+                machs[t].insertRotors(new String[] {"B", "Beta", "III",
+                                                    "IV", "I"});
+                machs[t].setRotors("AXLE");
+                machs[t].setPlugboard(new Permutation("(HQ) (TA)", _alph));
+                traces[t] = new KeyTrace(256, 1000, file);
+                machs[t].setTrace(traces[t]);
+            }
+            char[] chars = new char[100001];
+            for (int i = 0; i < chars.length; i += 1) {
+                chars[i] = alpha.charAt(i * 7 % 26);
+            }
+            String msg = new String(chars);
+            assertEquals("parallel conversion differs",
+                    machs[0].convert(msg), machs[1].convertParallel(msg));
+            assertEquals("wrong number sampled", 101,
+                    traces[0].getRecorded());
+            ArrayList<long[]> expected = traceRecords(traces[0], file);
+            ArrayList<long[]> parallel = traceRecords(traces[1], file);
+            assertEquals("wrong parallel record count", expected.size(),
+                    parallel.size());
+            for (int k = 0; k < expected.size(); k += 1) {
+                assertArrayEquals("wrong parallel record",
+                        expected.get(k), parallel.get(k));
+            }
+
+            machs[2].convert(msg.substring(0, 500));
+            machs[2].jumpAhead(12345);
+            machs[2].convert(msg.substring(12845));
+            expected.removeIf(r -> r[0] > 500 && r[0] <= 12845);
+            ArrayList<long[]> jumped = traceRecords(traces[2], file);
+            assertEquals("wrong record count after jump", expected.size(),
+                    jumped.size());
+            for (int k = 0; k < expected.size(); k += 1) {
+                assertArrayEquals("wrong record after jump",
+                        expected.get(k), jumped.get(k));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void checkStateCountLimit() {
+        Alphabet ab = new Alphabet("AB");
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        rotors.add(new Reflector("R", new Permutation("(AB)", ab)));
+        String[] names = new String[64];
+        names[0] = "R";
+        for (int i = 1; i < names.length; i += 1) {
+            names[i] = "M" + i;
+            rotors.add(new MovingRotor(names[i], new Permutation("", ab),
+                    "A"));
+        }
+        Machine m = new Machine(ab, 64, 63, rotors);
+        m.insertRotors(names);
+        assertEquals("2^63 states should not fit", -1, m.stateCount());
+        m = new Machine(ab, 63, 62, rotors);
+        m.insertRotors(Arrays.copyOf(names, 63));
+        assertEquals("wrong count of 2^62 states", 1L << 62,
+                m.stateCount());
+    }
+
     @Test
     public void checkPlugs() {
         constructAllRotors();
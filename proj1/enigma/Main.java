@@ -1,12 +1,33 @@
 package enigma;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static enigma.EnigmaException.*;
 
@@ -23,10 +44,16 @@ public final class Main {
      *  input.  ARGS[2] is optional; when present, it names an output
      *  file for processed messages.  Otherwise, output goes to the
      *  standard output. Exits normally if there are no errors in the input;
-     *  otherwise with code 1. */
+     *  otherwise with code 1.  Alternatively, ARGS may be COMPILE_FLAG
+     *  followed by the name of a configuration file, which is then
+     *  compiled (see compile). */
     public static void main(String... args) {
         try {
-            new Main(args).process();
+            if (args.length > 0 && args[0].equals(COMPILE_FLAG)) {
+                compile(args);
+            } else {
+                new Main(args).process();
+            }
             return;
         } catch (EnigmaException excp) {
             System.err.printf("Error: %s%n", excp.getMessage());
@@ -40,18 +67,41 @@ public final class Main {
             throw error("Only 1, 2, or 3 command-line arguments allowed");
         }
 
+        _configName = args[0];
         _config = getInput(args[0]);
 
         if (args.length > 1) {
-            _input = getInput(args[1]);
+            _input = getReader(args[1]);
         } else {
-            _input = new Scanner(System.in);
+            _input = new InputStreamReader(Stats.counted(System.in));
         }
 
         if (args.length > 2) {
             _output = getOutput(args[2]);
         } else {
-            _output = System.out;
+            _output = new BufferedWriter(
+                new OutputStreamWriter(Stats.counted(System.out)),
+                STDOUT_BUFFER_SIZE);
+        }
+        _groups = new GroupWriter(_output);
+    }
+
+    /** Write the compiled form of the configuration file named ARGS[1] to
+     *  the file of that name followed by CompiledConfig.SUFFIX, where it
+     *  will be used in place of the configuration file for as long as the
+     *  latter is unchanged.  ARGS[0] is COMPILE_FLAG. */
+    private static void compile(String[] args) {
+        if (args.length != 2) {
+            throw error("usage: %s CONFIG", COMPILE_FLAG);
+        }
+        Main main = new Main(new String[] { args[1] });
+        main.readConfig();
+        try {
+            Path source = Paths.get(args[1]);
+            CompiledConfig.write(main._spec, CompiledConfig.checksum(source),
+                                 Paths.get(args[1] + CompiledConfig.SUFFIX));
+        } catch (IOException | InvalidPathException excp) {
+            throw error("could not write compiled configuration");
         }
     }
 
@@ -64,38 +114,371 @@ public final class Main {
         }
     }
 
-    /** Return a PrintStream writing to the file named NAME. */
-    private PrintStream getOutput(String name) {
+    /** Return a Reader reading from the file named NAME, through a
+     *  memory mapping if it is a regular file.  Anything else (a pipe,
+     *  FIFO or device) has no meaningful size to map, and is read through
+     *  a stream as the standard input is. */
+    private Reader getReader(String name) {
         try {
-            return new PrintStream(new File(name));
-        } catch (IOException excp) {
+            Path path = Paths.get(name);
+            if (Files.isRegularFile(path)) {
+                return new MappedReader(path, Charset.defaultCharset());
+            }
+            return new InputStreamReader(
+                Stats.counted(Files.newInputStream(path)));
+        } catch (IOException | InvalidPathException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Return a Writer writing to the file named NAME through a file
+     *  channel. */
+    private Writer getOutput(String name) {
+        try {
+            FileChannel channel =
+                FileChannel.open(Paths.get(name), StandardOpenOption.WRITE,
+                                 StandardOpenOption.CREATE,
+                                 StandardOpenOption.TRUNCATE_EXISTING);
+            return new ChannelWriter(channel, Charset.defaultCharset());
+        } catch (IOException | InvalidPathException excp) {
             throw error("could not open %s", name);
         }
     }
 
     /** Configure an Enigma machine from the contents of configuration
      *  file _config and apply it to the messages in _input, sending the
-     *  results to _output. */
-    private void process() {
-        Scanner iterations = _input.useDelimiter("\\*\\s");
+     *  results to _output.  Statistics are gathered as described in
+     *  Stats, and any keystroke trace is dumped if an error occurs. */
+    void process() {
+        Stats.start();
+        try {
+            int threads = Integer.getInteger(BLOCK_THREADS_PROPERTY, 0);
+            if (threads > 0) {
+                convertBlocks(threads);
+            } else {
+                convertAll();
+            }
+        } catch (EnigmaException excp) {
+            if (_trace != null) {
+                _trace.dumpQuietly();
+            }
+            throw excp;
+        } finally {
+            try {
+                _output.close();
+            } catch (IOException excp) {
+                throw error("could not write output");
+            }
+            Stats.finish();
+        }
+    }
+
+    /** Apply a machine configured from _config to the messages in
+     *  _input, writing the results to _groups.  When converting in
+     *  parallel, the text of each message line is gathered into batches
+     *  of up to PARALLEL_BATCH characters, so that long lines are split
+     *  among as many as PARALLEL_BATCH / Machine.PARALLEL_CHUNK tasks. */
+    private void convertAll() {
         Machine thing = readConfig();
-        while (iterations.hasNext()) {
-            Scanner thisiter = new Scanner(iterations.next());
-            String settings = thisiter.nextLine();
-            setUp(thing, settings);
-            while (thisiter.hasNextLine()) {
-                String message = thisiter.nextLine();
-                String ret = thing.convert(message);
-                printMessageLine(ret);
+        MessageReader input = new MessageReader(_input);
+        char[] batch = _parallel ? new char[PARALLEL_BATCH] : null;
+        char[] scratch = _parallel ? new char[PARALLEL_BATCH] : null;
+        int batched = 0;
+        boolean ready = false;
+        while (true) {
+            int token;
+            try {
+                token = input.next();
+            } catch (EnigmaException excp) {
+                writeParallel(thing, batch, batched, scratch);
+                throw excp;
+            }
+            if (batched > 0 && (token != MessageReader.TEXT
+                                || batched + input.end() - input.start()
+                                   > PARALLEL_BATCH)) {
+                writeParallel(thing, batch, batched, scratch);
+                batched = 0;
+            }
+            switch (token) {
+            case MessageReader.SETTINGS:
+                setUp(thing, input.settings());
+                ready = true;
+                break;
+            case MessageReader.TEXT:
+                if (!ready) {
+                    throw error("message without settings line");
+                }
+                if (_parallel) {
+                    int len = input.end() - input.start();
+                    System.arraycopy(input.buffer(), input.start(),
+                                     batch, batched, len);
+                    batched += len;
+                } else {
+                    thing.convert(input.buffer(), input.start(),
+                                  input.end(), _groups);
+                }
+                break;
+            case MessageReader.END_OF_LINE:
+                if (!ready) {
+                    throw error("message without settings line");
+                }
+                _groups.newLine();
+                break;
+            default:
+                return;
+            }
+        }
+    }
+
+    /** Convert BATCH[0 .. LEN-1] with M in parallel, using SCRATCH to
+     *  hold the result, and write it to _groups. */
+    private void writeParallel(Machine M, char[] batch, int len,
+                               char[] scratch) {
+        if (len > 0) {
+            int n = M.convertParallel(batch, 0, len, scratch, 0);
+            _groups.write(scratch, 0, n);
+        }
+    }
+
+    /** Apply machines configured from _config to the messages in _input
+     *  as for convertAll(), but converting each settings block (a
+     *  settings line and the message lines that follow it) separately on
+     *  a pool of THREADS threads, each block with its own machine.  The
+     *  text of a block is divided into segments of about SEGMENT_SIZE
+     *  characters, converted one after another by the block's machine,
+     *  so that memory does not grow with the length of a block.  Results
+     *  are written in input order, at most PENDING_PER_THREAD * THREADS
+     *  segments are held in memory at once, and the output of a block up
+     *  to any error in it is written before the error is reported. */
+    private void convertBlocks(int threads) {
+        readConfig();
+        ConcurrentLinkedQueue<Machine> machines =
+            new ConcurrentLinkedQueue<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<Segment>> pending = new ArrayDeque<>();
+        try {
+            MessageReader input = new MessageReader(_input);
+            Block block = null;
+            StringBuilder text = new StringBuilder();
+            while (true) {
+                int token;
+                try {
+                    token = input.next();
+                } catch (EnigmaException excp) {
+                    if (block != null) {
+                        submit(block, text, true, pool, pending, threads);
+                    }
+                    writeSegments(pending);
+                    throw excp;
+                }
+                if (token == MessageReader.SETTINGS
+                    || token == MessageReader.END_OF_INPUT) {
+                    if (block != null) {
+                        submit(block, text, true, pool, pending, threads);
+                    }
+                    if (token == MessageReader.END_OF_INPUT) {
+                        break;
+                    }
+                    Machine M = machines.poll();
+                    block = new Block(M == null ? newMachine() : M,
+                                      input.settings(), machines);
+                } else if (block == null) {
+                    throw error("message without settings line");
+                } else {
+                    if (token == MessageReader.TEXT) {
+                        text.append(input.buffer(), input.start(),
+                                    input.end() - input.start());
+                    } else {
+                        text.append('\n');
+                    }
+                    if (text.length() >= SEGMENT_SIZE) {
+                        submit(block, text, false, pool, pending, threads);
+                    }
+                }
             }
+            writeSegments(pending);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Queue the conversion of TEXT, the next segment of BLOCK, on POOL
+     *  after the segments of BLOCK already queued, and clear TEXT.  LAST
+     *  is true iff this is the block's final segment.  The result is
+     *  added to PENDING, after first writing the oldest pending segment
+     *  if PENDING_PER_THREAD * THREADS are already pending. */
+    private void submit(Block block, StringBuilder text, boolean last,
+                        ExecutorService pool,
+                        ArrayDeque<Future<Segment>> pending, int threads) {
+        if (pending.size() == PENDING_PER_THREAD * threads) {
+            writeSegment(pending.remove());
+        }
+        pending.add(block.submit(text.toString(), last, pool));
+        text.setLength(0);
+    }
 
+    /** Write the output of each of the segments in PENDING, in order, as
+     *  for writeSegment(). */
+    private void writeSegments(ArrayDeque<Future<Segment>> pending) {
+        while (!pending.isEmpty()) {
+            writeSegment(pending.remove());
+        }
+    }
 
+    /** Wait for the output of a segment of a settings block from SEGMENT
+     *  and write it to _output, then throw any error raised in converting
+     *  it. */
+    private void writeSegment(Future<Segment> segment) {
+        Segment result;
+        try {
+            result = segment.get();
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) excp.getCause();
+            }
+            throw error("could not convert block: %s", excp.getCause());
+        } catch (InterruptedException excp) {
+            throw error("interrupted");
+        }
+        try {
+            _output.write(result._text);
+        } catch (IOException excp) {
+            throw error("could not write output");
+        }
+        if (result._error != null) {
+            throw result._error;
         }
     }
 
+    /** A settings block being converted by convertBlocks(), one segment
+     *  at a time.  Its segments are converted in order, each only once
+     *  the one before it is done, so they never run at once. */
+    private final class Block {
+
+        /** A block whose settings line is SETTINGS, converted by M, which
+         *  is returned to MACHINES when the block is done. */
+        Block(Machine M, String settings, Queue<Machine> machines) {
+            _machine = M;
+            _settings = settings;
+            _machines = machines;
+            _out = new StringBuilder();
+            _groups = new GroupWriter(_out);
+        }
+
+        /** Return the future result of converting TEXT, my next segment,
+         *  on POOL once my previous segment is done.  LAST is true iff
+         *  TEXT is my final segment. */
+        CompletableFuture<Segment> submit(String text, boolean last,
+                                          ExecutorService pool) {
+            if (_tail == null) {
+                _tail = CompletableFuture.supplyAsync(
+                    () -> convert(text, last), pool);
+            } else {
+                _tail = _tail.thenApplyAsync(s -> convert(text, last), pool);
+            }
+            return _tail;
+        }
+
+        /** Return the result of converting TEXT, my next segment, first
+         *  setting up my machine if it is my first.  LAST is true iff it
+         *  is my final segment.  Nothing more is converted after an
+         *  error. */
+        private Segment convert(String text, boolean last) {
+            if (_error == null) {
+                try {
+                    if (_settings != null) {
+                        setUp(_machine, _settings);
+                        _settings = null;
+                    }
+                    char[] chars = text.toCharArray();
+                    int start = 0;
+                    for (int i = 0; i < chars.length; i += 1) {
+                        if (chars[i] == '\n') {
+                            _machine.convert(chars, start, i, _groups);
+                            _groups.newLine();
+                            start = i + 1;
+                        }
+                    }
+                    _machine.convert(chars, start, chars.length, _groups);
+                } catch (EnigmaException excp) {
+                    _error = excp;
+                }
+            }
+            Segment result = new Segment(_out.toString(), _error);
+            _out.setLength(0);
+            if (last) {
+                _machines.add(_machine);
+            }
+            return result;
+        }
+
+        /** My machine. */
+        private final Machine _machine;
+
+        /** My settings line, until my machine is set up by it. */
+        private String _settings;
+
+        /** Where my machine goes when I am done. */
+        private final Queue<Machine> _machines;
+
+        /** Output of the segment being converted. */
+        private final StringBuilder _out;
+
+        /** Writer of converted text to _out in groups of five, keeping
+         *  its place in the current group from one segment to the
+         *  next. */
+        private final GroupWriter _groups;
+
+        /** The result of my last segment queued, or null if none has
+         *  been. */
+        private CompletableFuture<Segment> _tail;
+
+        /** The error that stopped my conversion, or null. */
+        private EnigmaException _error;
+    }
+
+    /** The output of a segment of a settings block. */
+    private static final class Segment {
+
+        /** A segment whose output is TEXT, followed by the error ERROR
+         *  (null if none). */
+        Segment(String text, EnigmaException error) {
+            _text = text;
+            _error = error;
+        }
+
+        /** The converted text. */
+        private final String _text;
+
+        /** The error that ended the conversion, or null. */
+        private final EnigmaException _error;
+    }
+
     /** Return an Enigma machine configured from the contents of configuration
-     *  file _config. */
-    private Machine readConfig() {
+     *  file _config, or from its compiled form if that is up to date. */
+    Machine readConfig() {
+        long start = Stats.ENABLED ? System.nanoTime() : 0;
+        try {
+            return readSpec();
+        } finally {
+            if (Stats.ENABLED) {
+                Stats.CONFIG_NANOS.add(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /** Read _spec as for readConfig(), returning a new machine made from
+     *  it. */
+    private Machine readSpec() {
+        MachineSpec compiled = readCompiledConfig();
+        if (compiled != null) {
+            _config.close();
+            _spec = compiled;
+            _alphabet = compiled.alphabet();
+            _rotorNums = compiled.numRotors();
+            _pawlNums = compiled.numPawls();
+            return newMachine();
+        }
         try {
             _config = _config.useDelimiter("\\n(?=\\s*[A-Z].*\\r*\\n*)");
 
@@ -107,44 +490,76 @@ public final class Main {
 
 
             while (_config.hasNext()) {
-                Rotor toAdd = readRotor();
-                allRotors.add(toAdd);
+                allRotors.add(readRotor());
             }
             _config.close();
-            return new Machine(_alphabet, _rotorNums, _pawlNums, allRotors);
+            _spec = new MachineSpec(_alphabet, _rotorNums, _pawlNums,
+                allRotors.toArray(new RotorDescription[0]));
+            return newMachine();
         } catch (NoSuchElementException excp) {
             throw error("configuration file truncated");
         }
     }
 
-    /** Return a rotor, reading its description from _config. */
-    private Rotor readRotor() {
+    /** Return an empty map for _setups holding at most CAPACITY entries,
+     *  or null if CAPACITY is not positive. */
+    private static LinkedHashMap<String, Machine> newSetupCache(
+            final int capacity) {
+        if (capacity <= 0) {
+            return null;
+        }
+        return new LinkedHashMap<String, Machine>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, Machine> e) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** Return the specification in the compiled form of configuration
+     *  file _configName, or null if there is none or it is out of
+     *  date. */
+    private MachineSpec readCompiledConfig() {
+        try {
+            Path compiled = Paths.get(_configName + CompiledConfig.SUFFIX);
+            if (!Files.isRegularFile(compiled)) {
+                return null;
+            }
+            long checksum = CompiledConfig.checksum(Paths.get(_configName));
+            return CompiledConfig.read(compiled, checksum);
+        } catch (IOException | InvalidPathException excp) {
+            return null;
+        }
+    }
+
+    /** Return a new Enigma machine with the configuration read by
+     *  readConfig(), sharing _spec with all others. */
+    private Machine newMachine() {
+        Machine result = _spec.newMachine();
+        result.setStateCache(Long.getLong(STATE_CACHE_PROPERTY, 0));
+        result.setSuccessorTable(Long.getLong(SUCCESSOR_TABLE_PROPERTY, 0));
+        result.setTrace(_trace);
+        return result;
+    }
+
+    /** Return the description of a rotor, read from _config.  The rotor
+     *  itself is built only if a settings line uses it. */
+    private RotorDescription readRotor() {
         try {
             String desc = _config.next();
             Scanner newrotor = new Scanner(desc);
             String name = newrotor.next();
             String other = newrotor.next();
-            String type = other.substring(0, 1);
+            char type = other.charAt(0);
             String notches = other.substring(1);
             String cycles = newrotor.nextLine();
             while (newrotor.hasNextLine()) {
                 cycles += newrotor.nextLine();
             }
             newrotor.close();
-            switch (type) {
-            case "M":
-                return new MovingRotor(name, new Permutation(cycles,
-                        _alphabet), notches);
-            case "N":
-                return new FixedRotor(name, new Permutation(cycles,
-                        _alphabet));
-            case "R":
-                return new Reflector(name, new Permutation(cycles,
-                        _alphabet));
-            default:
-                throw error("Something wrong here,"
-                        + " got no type/wrong char from _config");
-            }
+            return new RotorDescription(name, type, notches, cycles,
+                                        _alphabet);
         } catch (NoSuchElementException excp) {
             throw error("bad rotor description");
         }
@@ -153,6 +568,44 @@ public final class Main {
     /** Set M according to the specification given on SETTINGS,
      *  which must have the format specified in the assignment. */
     private void setUp(Machine M, String settings) {
+        if (Stats.ENABLED) {
+            Stats.BLOCKS.increment();
+        }
+        if (_setups == null) {
+            parseSetUp(M, settings);
+            return;
+        }
+        String key = settingsKey(settings);
+        Machine saved;
+        synchronized (_setups) {
+            saved = _setups.get(key);
+        }
+        if (saved != null) {
+            M.restore(saved);
+            return;
+        }
+        parseSetUp(M, settings);
+        synchronized (_setups) {
+            _setups.put(key, M.copy());
+        }
+    }
+
+    /** Return SETTINGS without leading or trailing whitespace.  Settings
+     *  lines with the same key set up machines identically. */
+    private static String settingsKey(String settings) {
+        int start = 0, end = settings.length();
+        while (start < end && Machine.isWhitespace(settings.charAt(start))) {
+            start += 1;
+        }
+        while (end > start && Machine.isWhitespace(settings.charAt(end - 1))) {
+            end -= 1;
+        }
+        return settings.substring(start, end);
+    }
+
+    /** Set M according to SETTINGS as for setUp, always parsing
+     *  SETTINGS. */
+    private void parseSetUp(Machine M, String settings) {
         try {
             Scanner sc = new Scanner(settings);
             int i = 0;
@@ -184,13 +637,49 @@ public final class Main {
 
     }
 
-    /** Print MSG in groups of five (except that the last group may
-     *  have fewer letters).
-     *  lol already did this in Machine sry*/
-    private void printMessageLine(String msg) {
-        _output.println(msg);
-    }
+    /** System property giving the number of distinct settings lines whose
+     *  machine setups are remembered (see setUp).  With 0, every settings
+     *  line is parsed. */
+    static final String SETTINGS_CACHE_PROPERTY = "enigma.settingsCache";
 
+    /** Default number of settings lines remembered. */
+    static final int DEFAULT_SETTINGS_CACHE = 64;
+
+    /** First argument requesting compilation of a configuration file. */
+    static final String COMPILE_FLAG = "--compile";
+
+    /** System property giving the memory budget, in bytes, of the
+     *  machine's state cache (see Machine.setStateCache). */
+    static final String STATE_CACHE_PROPERTY = "enigma.stateCache";
+
+    /** System property giving the memory budget, in bytes, of the
+     *  machine's successor table (see Machine.setSuccessorTable). */
+    static final String SUCCESSOR_TABLE_PROPERTY = "enigma.successorTable";
+
+    /** System property that, when "true", has long message lines
+     *  converted in parallel (see Machine.convertParallel). */
+    static final String PARALLEL_PROPERTY = "enigma.parallel";
+
+    /** Maximum number of message characters converted by one call of
+     *  Machine.convertParallel (see convertAll).  Must be at least
+     *  MessageReader.BUFFER_SIZE. */
+    static final int PARALLEL_BATCH = 1 << 21;
+
+    /** System property giving the number of threads among which settings
+     *  blocks are divided (see convertBlocks).  With 0, the default,
+     *  blocks are converted one at a time as they are read. */
+    static final String BLOCK_THREADS_PROPERTY = "enigma.blockThreads";
+
+    /** Number of segments of settings blocks per thread that may be read
+     *  ahead of the output (see convertBlocks). */
+    static final int PENDING_PER_THREAD = 4;
+
+    /** Number of message characters after which the text of a settings
+     *  block is passed on for conversion (see convertBlocks). */
+    static final int SEGMENT_SIZE = 1 << 16;
+
+    /** Size of the buffer used when writing to the standard output. */
+    static final int STDOUT_BUFFER_SIZE = 1 << 16;
 
     /** Number of Rotors in this machine. */
     private int _rotorNums;
@@ -202,14 +691,38 @@ public final class Main {
     private Alphabet _alphabet;
 
     /** Source of input messages. */
-    private Scanner _input;
+    private Reader _input;
+
+    /** Name of the machine configuration file. */
+    private String _configName;
 
     /** Source of machine configuration. */
     private Scanner _config;
 
     /** File for encoded/decoded messages. */
-    private PrintStream _output;
+    private Writer _output;
+
+    /** Writer of converted messages to _output in groups of five. */
+    private GroupWriter _groups;
+
+    /** True iff message lines are to be converted in parallel. */
+    private boolean _parallel = Boolean.getBoolean(PARALLEL_PROPERTY);
+
+    /** Trace shared by all my machines (see KeyTrace), or null if
+     *  keystrokes are not traced. */
+    private final KeyTrace _trace = KeyTrace.fromProperties();
+
+    /** The configuration read from _config, shared by all my
+     *  machines. */
+    private MachineSpec _spec;
+
+    /** Machines set up by recently used settings lines, by
+     *  settingsKey(), least recently used first, or null if settings lines
+     *  are not cached. */
+    private final LinkedHashMap<String, Machine> _setups = newSetupCache(
+        Integer.getInteger(SETTINGS_CACHE_PROPERTY, DEFAULT_SETTINGS_CACHE));
 
-    /** ArrayList with all possible rotors. */
-    private ArrayList<Rotor> allRotors = new ArrayList<Rotor>();
+    /** ArrayList with descriptions of all possible rotors. */
+    private ArrayList<RotorDescription> allRotors =
+        new ArrayList<RotorDescription>();
 }
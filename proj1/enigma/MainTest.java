@@ -0,0 +1,114 @@
+package enigma;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/** Tests of the Main program's handling of its input and output files.
+ *  @author Jeremy Lazo
+ */
+public class MainTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** A configuration with the rotors used by INPUT. */
+    private static final String CONFIG =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZ\n"
+        + " 5 3\n"
+        + " I MQ      (AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ) (S)\n"
+        + " II ME     (FIXVYOMW) (CDKLHUP) (ESZ) (BJ) (GR) (NT) (A) (Q)\n"
+        + " III MV    (ABDHPEJT) (CFLVMZOYQIRWUKXSG) (N)\n"
+        + " Beta N    (ALBEVFCYODJWUGNMQTZSKPR) (HIX)\n"
+        + " B R       (AE) (BN) (CK) (DQ) (FU) (GY) (HW) (IJ) (LO) (MP)\n"
+        + "           (RX) (SZ) (TV)\n";
+
+    /** Messages to convert. */
+    private static final String INPUT =
+        "* B Beta I II III AAAA\nHELLO WORLD\n"
+        + "* B Beta I II III AAAA\nILBDA AMTAZ\n";
+
+    /** The conversion of INPUT. */
+    private static final String OUTPUT = "ILBDA AMTAZ\nHELLO WORLD\n";
+
+    /** Directory holding the files of a test. */
+    private Path _dir;
+
+    /** Create _dir and the configuration file in it. */
+    @Before
+    public void setUp() throws IOException {
+        _dir = Files.createTempDirectory("enigma");
+        Files.write(_dir.resolve("default.conf"),
+                    CONFIG.getBytes(Charset.defaultCharset()));
+    }
+
+    /** Remove _dir and everything in it. */
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(_dir)) {
+            for (Path p : (Iterable<Path>)
+                     files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    /** Run Main on the file INPUTFILE in _dir, returning its output. */
+    private String run(Path inputFile) throws IOException {
+        Path out = _dir.resolve("out");
+        new Main(new String[] {
+            _dir.resolve("default.conf").toString(), inputFile.toString(),
+            out.toString() }).process();
+        return new String(Files.readAllBytes(out), Charset.defaultCharset());
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkRegularInput() throws IOException {
+        Path in = _dir.resolve("input.in");
+        Files.write(in, INPUT.getBytes(Charset.defaultCharset()));
+        assertEquals("wrong output from regular file", OUTPUT, run(in));
+    }
+
+    @Test
+    public void checkFifoInput() throws Exception {
+        final Path fifo = _dir.resolve("input.fifo");
+        boolean made;
+        try {
+            made = new ProcessBuilder("mkfifo", fifo.toString())
+                .start().waitFor() == 0;
+        } catch (IOException excp) {
+            made = false;
+        }
+        assumeTrue(made);
+        assertFalse(Files.isRegularFile(fifo));
+        Thread writer = new Thread(() -> {
+            try (OutputStream w = Files.newOutputStream(fifo)) {
+                w.write(INPUT.getBytes(Charset.defaultCharset()));
+            } catch (IOException excp) {
+                throw new RuntimeException(excp);
+            }
+        });
+        writer.start();
+        String result = run(fifo);
+        writer.join();
+        assertEquals("wrong output from FIFO", OUTPUT, result);
+    }
+
+}
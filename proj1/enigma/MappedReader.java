@@ -0,0 +1,99 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** A Reader that decodes a file through memory-mapped windows of its
+ *  contents, so that reading it involves no intermediate byte copies.
+ *  @author Jeremy Lazo
+ */
+class MappedReader extends Reader {
+
+    /** Largest part of the file mapped at one time. */
+    static final long WINDOW_SIZE = 1L << 26;
+
+    /** A MappedReader for the file at PATH, decoded using CHARSET. */
+    MappedReader(Path path, Charset charset) throws IOException {
+        _channel = FileChannel.open(path, StandardOpenOption.READ);
+        _decoder = charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        _size = _channel.size();
+        _window = ByteBuffer.allocate(0);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (cbuf != _lastArray) {
+            _lastArray = cbuf;
+            _chars = CharBuffer.wrap(cbuf);
+        }
+        _chars.limit(off + len).position(off);
+        while (_chars.position() == off && !_flushed) {
+            boolean last = _windowEnd == _size;
+            _decoder.decode(_window, _chars, last);
+            if (_chars.position() > off) {
+                break;
+            } else if (!last) {
+                mapNext();
+            } else {
+                _decoder.flush(_chars);
+                _flushed = true;
+            }
+        }
+        int n = _chars.position() - off;
+        return n == 0 ? -1 : n;
+    }
+
+    /** Map the next window of the file, starting just after the last byte
+     *  decoded. */
+    private void mapNext() throws IOException {
+        long start = _windowEnd - _window.remaining();
+        long length = Math.min(WINDOW_SIZE, _size - start);
+        _window = _channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        if (Stats.ENABLED) {
+            Stats.BYTES_IN.add(start + length - _windowEnd);
+        }
+        _windowEnd = start + length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _channel.close();
+    }
+
+    /** The file being read. */
+    private final FileChannel _channel;
+
+    /** Decoder from the file's bytes to characters. */
+    private final CharsetDecoder _decoder;
+
+    /** Length of the file. */
+    private final long _size;
+
+    /** The currently mapped part of the file. */
+    private ByteBuffer _window;
+
+    /** File position just past the end of _window. */
+    private long _windowEnd;
+
+    /** True once the decoder has been flushed at the end of the file. */
+    private boolean _flushed;
+
+    /** The array most recently passed to read. */
+    private char[] _lastArray;
+
+    /** Buffer wrapping _lastArray. */
+    private CharBuffer _chars;
+}
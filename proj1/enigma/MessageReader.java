@@ -0,0 +1,144 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import static enigma.EnigmaException.*;
+
+/** Splits an input file of settings lines and message lines into tokens.
+ *  A settings line is one whose first character is '*'; every other line
+ *  is a message line.  Input is read incrementally through a fixed buffer
+ *  and message lines are delivered in pieces, so memory use does not
+ *  depend on the length of lines or of the input.
+ *  @author Jeremy Lazo
+ */
+class MessageReader {
+
+    /** Token: a settings line, available from settings(). */
+    static final int SETTINGS = 0;
+    /** Token: part of a message line, in buffer()[start() .. end()-1]. */
+    static final int TEXT = 1;
+    /** Token: the end of a message line. */
+    static final int END_OF_LINE = 2;
+    /** Token: the end of the input. */
+    static final int END_OF_INPUT = 3;
+
+    /** Size of the input buffer. */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /** A MessageReader reading from IN. */
+    MessageReader(Reader in) {
+        _in = in;
+        _buffer = new char[BUFFER_SIZE];
+        _atLineStart = true;
+    }
+
+    /** Return the next token of the input: SETTINGS, TEXT, END_OF_LINE,
+     *  or END_OF_INPUT.  A message line is delivered as zero or more TEXT
+     *  tokens followed by END_OF_LINE; the last line need not end in a
+     *  newline. */
+    int next() {
+        if (_pos == _limit && !fill()) {
+            if (_atLineStart) {
+                return END_OF_INPUT;
+            }
+            _atLineStart = true;
+            return END_OF_LINE;
+        }
+        if (_atLineStart && _buffer[_pos] == '*') {
+            readSettings();
+            return SETTINGS;
+        }
+        int k = _pos;
+        while (k < _limit && _buffer[k] != '\n') {
+            k += 1;
+        }
+        if (k == _pos) {
+            _pos += 1;
+            _atLineStart = true;
+            return END_OF_LINE;
+        }
+        _start = _pos;
+        _end = k;
+        _pos = k;
+        _atLineStart = false;
+        return TEXT;
+    }
+
+    /** Return the text of the last SETTINGS line, without its '*'. */
+    String settings() {
+        return _settings;
+    }
+
+    /** Return the buffer holding the last TEXT token.  Its contents are
+     *  only valid until the next call to next(). */
+    char[] buffer() {
+        return _buffer;
+    }
+
+    /** Return the index in buffer() of the start of the last TEXT
+     *  token. */
+    int start() {
+        return _start;
+    }
+
+    /** Return the index in buffer() just past the end of the last TEXT
+     *  token. */
+    int end() {
+        return _end;
+    }
+
+    /** Read the settings line starting at _pos, including its newline,
+     *  into _settings. */
+    private void readSettings() {
+        StringBuilder line = new StringBuilder();
+        _pos += 1;
+        while (_pos < _limit || fill()) {
+            char c = _buffer[_pos++];
+            if (c == '\n') {
+                break;
+            }
+            line.append(c);
+        }
+        _settings = line.toString();
+    }
+
+    /** Refill _buffer from the input.  Returns false at end of input. */
+    private boolean fill() {
+        try {
+            int n;
+            do {
+                n = _in.read(_buffer, 0, _buffer.length);
+            } while (n == 0);
+            if (n < 0) {
+                return false;
+            }
+            _pos = 0;
+            _limit = n;
+            return true;
+        } catch (IOException excp) {
+            throw error("could not read input");
+        }
+    }
+
+    /** Source of input. */
+    private final Reader _in;
+
+    /** Buffered input characters, valid in [0 .. _limit-1]. */
+    private final char[] _buffer;
+
+    /** Index of the next unread character in _buffer. */
+    private int _pos;
+
+    /** Number of valid characters in _buffer. */
+    private int _limit;
+
+    /** True iff _pos is at the beginning of a line. */
+    private boolean _atLineStart;
+
+    /** Bounds of the last TEXT token in _buffer. */
+    private int _start, _end;
+
+    /** The last settings line read. */
+    private String _settings;
+}
@@ -1,8 +1,5 @@
 package enigma;
 
-
-import java.util.HashMap;
-
 import static enigma.EnigmaException.*;
 
 /** Class that represents a rotating rotor in the enigma machine.
@@ -17,32 +14,59 @@ class MovingRotor extends Rotor {
      */
     MovingRotor(String name, Permutation perm, String notches) {
         super(name, perm);
-        _permutation = super.permutation();
-        _setting = super.setting();
-        _notches = notches.toCharArray();
+        _notches = new boolean[size()];
+        for (char c : notches.toCharArray()) {
+            if (alphabet().contains(c)) {
+                _notches[alphabet().toInt(c)] = true;
+            }
+        }
+        int n = size();
+        _notchesBefore = new int[n + 1];
+        _openRank = new int[n];
+        int open = 0;
+        _isolated = true;
+        for (int k = 0; k < n; k += 1) {
+            _notchesBefore[k + 1] = _notchesBefore[k] + (_notches[k] ? 1 : 0);
+            _openRank[k] = _notches[k] ? -1 : open++;
+            if (_notches[k] && _notches[(k + 1) % n]) {
+                _isolated = false;
+            }
+        }
+        _openPositions = new int[open];
+        _passesBefore = new int[open + 1];
+        for (int k = 0; k < n; k += 1) {
+            int r = _openRank[k];
+            if (r >= 0) {
+                _openPositions[r] = k;
+                _passesBefore[r + 1] =
+                    _passesBefore[r] + (_notches[(k + 1) % n] ? 1 : 0);
+            }
+        }
+        if (open == 0) {
+            _isolated = false;
+        }
     }
 
-    @Override
-    void advance() {
-        _setting += 1;
-        _setting = _permutation.wrap(_setting);
-        set(_setting);
+    /** A copy of ROTOR at setting 0, sharing its tables of notches, which
+     *  neither changes. */
+    private MovingRotor(MovingRotor rotor) {
+        super(rotor.name(), rotor.permutation());
+        _notches = rotor._notches;
+        _notchesBefore = rotor._notchesBefore;
+        _openRank = rotor._openRank;
+        _openPositions = rotor._openPositions;
+        _passesBefore = rotor._passesBefore;
+        _isolated = rotor._isolated;
     }
 
     @Override
-    /** Set setting() to POSN.  */
-    void set(int posn) {
-        HashMap sets = mySets();
-        _permutation.updateCycles((String) sets.get(posn));
-        _setting = posn;
+    Rotor copy() {
+        return new MovingRotor(this);
     }
 
     @Override
-    /** Set setting() to character CPOSN. */
-    void set(char cposn) {
-        int posn = _permutation.alphabet().toInt(cposn);
-        set(posn);
-
+    void advance() {
+        set(setting() + 1);
     }
 
     @Override
@@ -51,30 +75,72 @@ class MovingRotor extends Rotor {
     }
 
     @Override
-    /** Returns true iff I am positioned to allow the rotor to my left
-     *  to advance. */
-    boolean atNotch() {
-        for (char c: _notches) {
-            Character ch = (Character) alphabet().toChar(_setting);
-            if (ch.equals((Character) c)) {
-                return true;
-            }
-        }
-        return false;
+    boolean atNotch(int posn) {
+        return _notches[posn];
     }
 
-    @Override
-    /** Return my current setting. */
-    int setting() {
-        return _setting;
+    /** Returns true iff no two of my notches are at adjacent positions
+     *  (so that I can never be at a notch two keystrokes running). */
+    boolean isolatedNotches() {
+        return _isolated;
     }
 
-    /** New Instance variable for all notches. */
-    private char[] _notches;
-    /** Instance variable of _settings. */
-    private int _setting;
-    /** new permutation variable. */
-    private Permutation _permutation;
+    /** Returns the number of my notches among the COUNT positions
+     *  starting at POSN, counting cyclically (and repeatedly). */
+    long notchesFrom(int posn, long count) {
+        return countFrom(_notchesBefore, posn, count);
+    }
 
-}
+    /** Returns the rank of POSN among my positions without a notch,
+     *  or -1 if there is a notch at POSN. */
+    int openRank(int posn) {
+        return _openRank[posn];
+    }
+
+    /** Returns my K-th position without a notch after the one of rank
+     *  RANK, counting cyclically. */
+    int openPosition(int rank, long k) {
+        int m = _openPositions.length;
+        return _openPositions[(int) ((rank + k % m) % m)];
+    }
+
+    /** Returns how many of the K moves starting from my position without
+     *  a notch of rank RANK, each to my next position without a notch,
+     *  pass over a notch.  Requires isolatedNotches(). */
+    long notchesPassed(int rank, long k) {
+        return countFrom(_passesBefore, rank, k);
+    }
+
+    /** Returns the sum of COUNT consecutive terms of a cyclic sequence,
+     *  starting at term START, where BEFORE[K] is the sum of its first K
+     *  terms in a period. */
+    private static long countFrom(int[] before, int start, long count) {
+        int period = before.length - 1;
+        int end = start + (int) (count % period);
+        long sum = count / period * before[period];
+        if (end <= period) {
+            return sum + before[end] - before[start];
+        }
+        return sum + before[period] - before[start] + before[end - period];
+    }
+
+    /** _notches[K] is true iff I have a notch at position K. */
+    private final boolean[] _notches;
+
+    /** _notchesBefore[K] is the number of my notches at positions < K. */
+    private final int[] _notchesBefore;
+
+    /** Rank of each position among those without a notch, or -1. */
+    private final int[] _openRank;
 
+    /** My positions without a notch, in increasing order. */
+    private final int[] _openPositions;
+
+    /** _passesBefore[R] is the number of positions without a notch of
+     *  rank < R that are followed by a notch. */
+    private final int[] _passesBefore;
+
+    /** True iff my notches are isolated (see isolatedNotches()). */
+    private boolean _isolated;
+
+}
@@ -104,6 +104,20 @@ public class MovingRotorTest {
 
     }
 
+    @Test
+    public void checkPermutationAt() {
+        setRotor("I", NAVALA, "");
+        Permutation atB = rotor.permutationAt(1);
+        Permutation atZ = rotor.permutationAt(25);
+        for (int i = 0; i < alpha.length(); i += 1) {
+            char c = alpha.charAt(i);
+            assertEquals(msg("checkPermutationAt", "wrong translation at B"),
+                    NAVALB_MAP.get("I").charAt(i), atB.permute(c));
+            assertEquals(msg("checkPermutationAt", "wrong translation at Z"),
+                    NAVALZ_MAP.get("I").charAt(i), atZ.permute(c));
+        }
+    }
+
     @Test
     public void checkRotorSetZ() {
         setRotor("I", NAVALA, "");
@@ -1,7 +1,6 @@
 package enigma;
 
-import java.util.HashMap;
-import java.util.Scanner;
+import java.util.Arrays;
 
 import static enigma.EnigmaException.*;
 
@@ -25,77 +24,114 @@ class Permutation {
 
     }
 
-    /** Add the cycle c0->c1->...->cm->c0 to the permutation, where CYCLE is
-     *  c0c1...cm. */
-    private void addCycle(String cycle) {
-        for (char a: cycle.toCharArray()) {
-            if (_charMap.containsKey(a)) {
-                throw error(msg("addCycles",
-                        "character %c already in a cycle", cycle.charAt(0)));
-            }
+    /** A Permutation of ALPHABET whose table is FORWARD and whose inverse
+     *  table is INVERSE.  Both arrays are used directly and must not be
+     *  modified afterwards. */
+    private Permutation(int[] forward, int[] inverse, Alphabet alphabet) {
+        _alphabet = alphabet;
+        _forward = forward;
+        _inverse = inverse;
+    }
+
+    /** A Permutation of ALPHABET that maps index K to FORWARD[K], which
+     *  must hold each index of ALPHABET exactly once. */
+    private Permutation(int[] forward, Alphabet alphabet) {
+        this(forward, new int[forward.length], alphabet);
+        for (int i = 0; i < forward.length; i++) {
+            _inverse[forward[i]] = i;
+        }
+    }
 
+    /** Return the Permutation of ALPHABET whose table is FORWARD and
+     *  whose inverse table is INVERSE, after checking that they are
+     *  inverse permutations of the indices of ALPHABET.  Both arrays are
+     *  used directly and must not be modified afterwards. */
+    static Permutation fromTables(int[] forward, int[] inverse,
+                                  Alphabet alphabet) {
+        int n = alphabet.size();
+        if (forward.length != n || inverse.length != n) {
+            throw error("permutation tables of wrong size");
         }
-        if (!_alphabet.contains(cycle.charAt(0))) {
-            throw error(msg("addCycles",
-                    "character %c not found in alphabet", cycle.charAt(0)));
+        for (int i = 0; i < n; i++) {
+            int c = forward[i];
+            if (c < 0 || c >= n || inverse[c] != i) {
+                throw error("inconsistent permutation tables");
+            }
         }
+        return new Permutation(forward, inverse, alphabet);
+    }
 
-        for (int i = 0; i < cycle.length() - 1; i++) {
-            char from = cycle.charAt(i);
-            char to = cycle.charAt(i + 1);
-            if (!_alphabet.contains(to)) {
+    /** Add the cycle c0->c1->...->cm->c0 to the permutation, where the
+     *  characters c0c1...cm are CYCLES[START .. END-1]. */
+    private void addCycle(String cycles, int start, int end) {
+        if (start == end) {
+            throw error("Cycle format wrong");
+        }
+        int first = -1, prev = -1;
+        for (int k = start; k < end; k++) {
+            char c = cycles.charAt(k);
+            if (!_alphabet.contains(c)) {
+                throw error(msg("addCycles",
+                        "character %c not found in alphabet", c));
+            }
+            int i = _alphabet.toInt(c);
+            if (i == first || _forward[i] >= 0 || _inverse[i] >= 0) {
                 throw error(msg("addCycles",
-                        "character %c not found in alphabet", to));
+                        "character %c already in a cycle", c));
             }
-            _charMap.put(from, to);
-            _invMap.put(to, from);
+            if (prev < 0) {
+                first = i;
+            } else {
+                _forward[prev] = i;
+                _inverse[i] = prev;
+            }
+            prev = i;
         }
-        _charMap.put(cycle.charAt(cycle.length() - 1), cycle.charAt(0));
-        _invMap.put(cycle.charAt(0), cycle.charAt(cycle.length() - 1));
+        _forward[prev] = first;
+        _inverse[first] = prev;
     }
-    /** Updates HashMaps of Permutation with cycles "(ABC) (DEF)".
+
+    /** Updates the tables of Permutation with cycles "(ABC) (DEF)".
      * @param cycles is cycles to update Permutation by */
-    protected void updateCycles(String cycles) {
-        _charMap = new HashMap<>();
-        _invMap = new HashMap<>();
-        _cycles = cycles.replaceAll("\n", "");
-        _cycles = _cycles.replaceAll(" ", "");
-
-        if (!_cycles.equals("")) {
-            Scanner sc = new Scanner(_cycles).useDelimiter("\\(");
-            while (sc.hasNext()) {
-                String cycle = sc.next();
-                cycle = cycle.replaceAll(" ", "");
-                String ret = "";
-                while (cycle.length() != 0) {
-                    if (cycle.substring(0, 1).equals(")")
-                            && cycle.length() != 1) {
-                        throw error("Cycle format wrong");
-                    }
-                    ret += cycle.substring(0, 1);
-                    cycle = cycle.substring(1);
-                }
-                if (!ret.contains(")")) {
-                    throw error("Cycle not closed");
-                }
-                addCycle(ret.substring(0, ret.length() - 1));
+    private void updateCycles(String cycles) {
+        _forward = new int[size()];
+        _inverse = new int[size()];
+        Arrays.fill(_forward, -1);
+        Arrays.fill(_inverse, -1);
+        _cycles = cycles.replaceAll("\\s", "");
 
+        int k = 0;
+        while (k < _cycles.length()) {
+            if (_cycles.charAt(k) != '(') {
+                throw error("Cycle format wrong");
             }
-
+            int close = _cycles.indexOf(')', k + 1);
+            if (close < 0 || _cycles.lastIndexOf('(', close) != k) {
+                throw error("Cycle not closed");
+            }
+            addCycle(_cycles, k + 1, close);
+            k = close + 1;
         }
 
-        for (Object C : _alphabet.chars().values()) {
-            char c = (char) C;
-            if (!_charMap.containsValue(c)) {
-                _charMap.put(c, c);
-                _invMap.put(c, c);
+        for (int i = 0; i < size(); i++) {
+            if (_forward[i] < 0) {
+                _forward[i] = i;
+                _inverse[i] = i;
             }
         }
-
     }
 
     /** Return the value of P modulo the size of this permutation. */
     final int wrap(int p) {
+        int n = _forward.length;
+        if (p >= n) {
+            p -= n;
+        } else if (p < 0) {
+            p += n;
+        }
+        if (p >= 0 && p < n) {
+            return p;
+        }
         int r = p % size();
         if (r < 0) {
             r += size();
@@ -111,30 +147,24 @@ class Permutation {
     /** Return the result of applying this permutation to P modulo the
      *  alphabet size. */
     int permute(int p) {
-        int pi = wrap(p);
-        char c = _alphabet.toChar(pi);
-        int i = _alphabet.toInt(permute(c));
-        return i;
+        return _forward[wrap(p)];
     }
 
     /** Return the result of applying the inverse of this permutation
      *  to  C modulo the alphabet size. */
     int invert(int c) {
-        int ci = wrap(c);
-        char p = _alphabet.toChar(ci);
-        int i = _alphabet.toInt(invert(p));
-        return i;
+        return _inverse[wrap(c)];
     }
 
     /** Return the result of applying this permutation to the index of P
      *  in ALPHABET, and converting the result to a character of ALPHABET. */
     char permute(char p) {
-        return _charMap.get(p);
+        return _alphabet.toChar(_forward[_alphabet.toInt(p)]);
     }
 
     /** Return the result of applying the inverse of this permutation to C. */
     char invert(char c) {
-        return _invMap.get(c);
+        return _alphabet.toChar(_inverse[_alphabet.toInt(c)]);
     }
 
     /** Return the alphabet used to initialize this Permutation. */
@@ -145,27 +175,114 @@ class Permutation {
     /** Return true iff this permutation is a derangement (i.e., a
      *  permutation for which no value maps to itself). */
     boolean derangement() {
-        for (Object C : _alphabet.chars().values()) {
-            char c = (char) C;
-            if (permute(c) == c) {
+        for (int i = 0; i < _forward.length; i++) {
+            if (_forward[i] == i) {
                 return false;
             }
         }
         return true;
     }
-    /** Returns _cycles. */
+
+    /** Return the permutation that applies OTHER and then this
+     *  permutation, so that compose(OTHER).permute(P) is
+     *  permute(OTHER.permute(P)). */
+    Permutation compose(Permutation other) {
+        if (other.size() != size()) {
+            throw error("cannot compose permutations of different sizes");
+        }
+        int[] result = new int[size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = _forward[other._forward[i]];
+        }
+        return new Permutation(result, _alphabet);
+    }
+
+    /** Return the inverse of this permutation. */
+    Permutation inverse() {
+        return new Permutation(_inverse, _forward, _alphabet);
+    }
+
+    /** Return this permutation applied K times (K may be negative). */
+    Permutation power(int k) {
+        int[] result = new int[size()];
+        int[] cycle = new int[size()];
+        boolean[] done = new boolean[size()];
+        for (int start = 0; start < result.length; start++) {
+            if (done[start]) {
+                continue;
+            }
+            int len = 0;
+            for (int i = start; !done[i]; i = _forward[i]) {
+                done[i] = true;
+                cycle[len++] = i;
+            }
+            int step = k % len;
+            if (step < 0) {
+                step += len;
+            }
+            for (int j = 0; j < len; j++) {
+                result[cycle[j]] = cycle[(j + step) % len];
+            }
+        }
+        return new Permutation(result, _alphabet);
+    }
+
+    /** Return this permutation conjugated by a shift of K positions in
+     *  the alphabet: the result maps P to permute(P + K) - K, modulo the
+     *  alphabet size.  This is the wiring of a rotor whose 0-setting
+     *  wiring is this permutation when it is set to K. */
+    Permutation shift(int k) {
+        int[] result = new int[size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = wrap(_forward[wrap(i + k)] - wrap(k));
+        }
+        return new Permutation(result, _alphabet);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Permutation)) {
+            return false;
+        }
+        Permutation other = (Permutation) obj;
+        return _alphabet == other._alphabet
+            && Arrays.equals(_forward, other._forward);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(_forward);
+    }
+
+    /** Returns this permutation in cycle notation, without whitespace. */
     public String getCycles() {
+        if (_cycles == null) {
+            StringBuilder result = new StringBuilder();
+            boolean[] done = new boolean[size()];
+            for (int start = 0; start < _forward.length; start++) {
+                if (done[start] || _forward[start] == start) {
+                    continue;
+                }
+                result.append('(');
+                for (int i = start; !done[i]; i = _forward[i]) {
+                    done[i] = true;
+                    result.append(_alphabet.toChar(i));
+                }
+                result.append(')');
+            }
+            _cycles = result.toString();
+        }
         return _cycles;
     }
 
     /** Alphabet of this permutation. */
     private Alphabet _alphabet;
 
-    /** Initializes a copy of original cycle. */
+    /** This permutation in cycle notation, or null if not yet computed. */
     private String _cycles;
 
-    /** HashMap that permutes chars. */
-    private HashMap<Character, Character> _charMap = new HashMap<>();
-    /** HashMap that inverses chars. */
-    private HashMap<Character, Character> _invMap = new HashMap<>();
+    /** Compiled permutation: _forward[K] is the image of index K. */
+    private int[] _forward;
+    /** Compiled inverse: _inverse[K] is the preimage of index K. */
+    private int[] _inverse;
 }
@@ -74,4 +74,46 @@ public class PermutationTest {
                 + "    (AEPLIYWCOXMRFZBSTGJQNH) (DV) (KU)\n", UPPER);
     }
 
+    @Test
+    public void checkAlgebra() {
+        Permutation rotor = new Permutation(NAVALA.get("I"), UPPER);
+        perm = rotor.inverse().compose(rotor);
+        checkPerm("I^-1 I", UPPER_STRING, UPPER_STRING);
+        perm = rotor.power(2);
+        checkPerm("I^2", UPPER_STRING, twice(NAVALA_MAP.get("I")));
+        perm = rotor.power(-1);
+        checkPerm("I^-1", NAVALA_MAP.get("I"), UPPER_STRING);
+        perm = rotor.shift(1);
+        checkPerm("I shifted 1", UPPER_STRING, NAVALB_MAP.get("I"));
+        perm = rotor.shift(-1);
+        checkPerm("I shifted -1", UPPER_STRING, NAVALZ_MAP.get("I"));
+        perm = new Permutation(perm.getCycles(), UPPER);
+        checkPerm("I shifted -1 cycles", UPPER_STRING, NAVALZ_MAP.get("I"));
+    }
+
+    /** Return the mapping of the upper-case alphabet obtained by
+     *  applying the mapping MAP twice. */
+    private String twice(String map) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < map.length(); i += 1) {
+            result.append(map.charAt(alpha.indexOf(map.charAt(i))));
+        }
+        return result.toString();
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkRepeatedChar() {
+        perm = new Permutation("(ABA) (CD)", UPPER);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkUnclosedCycle() {
+        perm = new Permutation("(AB) (CD", UPPER);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkCharNotInAlphabet() {
+        perm = new Permutation("(AB) (C1)", UPPER);
+    }
+
 }
@@ -11,7 +11,11 @@ class Reflector extends FixedRotor {
      * is PERM. */
     Reflector(String name, Permutation perm) {
         super(name, perm);
-        _setting = 0;
+    }
+
+    @Override
+    Rotor copy() {
+        return new Reflector(name(), permutation());
     }
 
     @Override
@@ -24,8 +28,7 @@ class Reflector extends FixedRotor {
         if (posn != 0) {
             throw error("reflector has only one position");
         }
+        super.set(posn);
     }
-    /** Int that represents the current setting of Reflector. */
-    private final int _setting;
 
 }
@@ -1,7 +1,5 @@
 package enigma;
 
-import java.util.HashMap;
-
 import static enigma.EnigmaException.*;
 
 /** Superclass that represents a rotor in the enigma machine.
@@ -14,9 +12,6 @@ class Rotor {
         _name = name;
         _permutation = perm;
         _setting = 0;
-        _Sets = new HashMap<>(_permutation.size());
-        setSets();
-
     }
 
     /** Return my name. */
@@ -34,6 +29,11 @@ class Rotor {
         return _permutation;
     }
 
+    /** Return the permutation I implement when set to POSN. */
+    Permutation permutationAt(int posn) {
+        return _permutation.shift(posn);
+    }
+
     /** Return the size of my alphabet. */
     int size() {
         return _permutation.size();
@@ -54,83 +54,73 @@ class Rotor {
         return _setting;
     }
 
-    /** Set setting() to POSN.  */
+    /** Set setting() to POSN.  Not allowed once I am frozen. */
     void set(int posn) {
-        _permutation.updateCycles(_Sets.get(posn));
-        _setting = posn;
+        if (_frozen) {
+            throw error("rotor %s is shared and cannot be moved", _name);
+        }
+        _setting = _permutation.wrap(posn);
+    }
+
+    /** Fix my setting where it is, so that set() and advance() fail from
+     *  now on.  Rotors shared by several machines (see MachineSpec) are
+     *  frozen; each machine keeps the positions of its rotors itself and
+     *  uses only the methods that take a position.  Must be called before
+     *  I am made visible to other threads. */
+    void freeze() {
+        _frozen = true;
+    }
+
+    /** Return a new rotor with my name, permutation and notches, at
+     *  setting 0 and not frozen. */
+    Rotor copy() {
+        return new Rotor(_name, _permutation);
+    }
+
+    /** Return true iff I have been frozen. */
+    boolean frozen() {
+        return _frozen;
     }
 
     /** Set setting() to character CPOSN. */
     void set(char cposn) {
-        int posn = _permutation.alphabet().toInt(cposn);
-        set(posn);
-
-    }
-    /** Helper function that updates a cycles in char[] form to a
-     * new char[] where characters other than space or parenthesis
-     * will be inverse by a set permutation 'count' number of times.
-     * @param count is the number of permutations that have to be made
-     * @param perm is helper Permutation that shifts characters of
-     * specific alphabet
-     * @param chars is old Permutation of Rotor in char[] form
-     * @return is the new Permutation Rotor gets*/
-    private char[] setCycles(Permutation perm, char[] chars, int count) {
-        Character space = ' ';
-        Character openP = '(';
-        Character closP = ')';
-        char[] retChars = new char[chars.length];
-        for (int i = 0; i < chars.length; i++) {
-            Character c = chars[i];
-            if (!c.equals(space) && !c.equals(openP) && !c.equals(closP)) {
-                for (int j = 0; j < count; j++) {
-                    c = perm.invert(c);
-                }
-            }
-            retChars[i] = c;
-        }
-        return retChars;
-    }
-
-
-    /** makes a set for all possible settings. */
-    private void setSets() {
-        _Sets.put(0, _permutation.getCycles());
-        Permutation newPerm =
-                new Permutation("(" + alphabet().str + ")", alphabet());
-        Character space = ' ';
-        Character openP = '(';
-        Character closP = ')';
-        char[] chars = _permutation.getCycles().toCharArray();
-        char[] retChars = new char[chars.length];
-        for (int k = 0; k < _permutation.alphabet().size(); k++) {
-            for (int i = 0; i < chars.length; i++) {
-                Character c = chars[i];
-                if (!c.equals(space) && !c.equals(openP) && !c.equals(closP)) {
-                    for (int j = 0; j < k; j++) {
-                        c = newPerm.invert(c);
-                    }
-                }
-                retChars[i] = c;
-            }
-            _Sets.put(k, String.valueOf(retChars));
-        }
-
+        set(alphabet().toInt(cposn));
     }
+
     /** Return the conversion of P (an integer in the range 0..size()-1)
      *  according to my permutation. */
     int convertForward(int p) {
-        return _permutation.permute(p);
+        return convertForward(p, _setting);
+    }
+
+    /** Return the conversion of P (an integer in the range 0..size()-1)
+     *  according to my permutation when I am set to POSN. */
+    int convertForward(int p, int posn) {
+        return _permutation.wrap(_permutation.permute(p + posn) - posn);
     }
 
     /** Return the conversion of E (an integer in the range 0..size()-1)
      *  according to the inverse of my permutation. */
     int convertBackward(int e) {
-        return _permutation.invert(e);
+        return convertBackward(e, _setting);
+    }
+
+    /** Return the conversion of E (an integer in the range 0..size()-1)
+     *  according to the inverse of my permutation when I am set to
+     *  POSN. */
+    int convertBackward(int e, int posn) {
+        return _permutation.wrap(_permutation.invert(e + posn) - posn);
     }
 
     /** Returns true iff I am positioned to allow the rotor to my left
      *  to advance. */
     boolean atNotch() {
+        return atNotch(_setting);
+    }
+
+    /** Returns true iff I allow the rotor to my left to advance when I
+     *  am set to POSN. */
+    boolean atNotch(int posn) {
         return false;
     }
 
@@ -138,11 +128,6 @@ class Rotor {
     void advance() {
     }
 
-    /** returns _sets. */
-    HashMap mySets() {
-        return  _Sets;
-    }
-
     @Override
     public String toString() {
         return "Rotor " + _name;
@@ -154,10 +139,11 @@ class Rotor {
     /** The permutation implemented by this rotor in its 0 position. */
     private Permutation _permutation;
 
-    /** The current setting of Rotor. */
+    /** The current setting of Rotor.  My wiring at this setting is my
+     *  permutation conjugated by a shift of _setting positions, so it is
+     *  applied with offset arithmetic rather than stored separately. */
     private int _setting;
 
-    /** A HashMap of all possible settings. */
-    private HashMap<Integer, String> _Sets;
-
+    /** True iff my setting may no longer change. */
+    private boolean _frozen;
 }
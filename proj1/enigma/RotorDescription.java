@@ -0,0 +1,105 @@
+package enigma;
+
+import static enigma.EnigmaException.*;
+
+/** The description of a rotor as given in a configuration file, from
+ *  which the rotor itself is built only when it is first needed.  The
+ *  rotor is built at most once and then shared, so a description may be
+ *  used from several threads.  The rotor is frozen (see Rotor.freeze), so
+ *  that no machine sharing it can move it.
+ *  @author Jeremy Lazo
+ */
+class RotorDescription {
+
+    /** A description of a rotor named NAME of kind TYPE ('M' for a moving
+     *  rotor, 'N' for a fixed rotor or 'R' for a reflector), with notches
+     *  at the characters of NOTCHES and whose permutation has the cycles
+     *  CYCLES in alphabet ALPHA. */
+    RotorDescription(String name, char type, String notches, String cycles,
+                     Alphabet alpha) {
+        if (type != 'M' && type != 'N' && type != 'R') {
+            throw error("Something wrong here,"
+                    + " got no type/wrong char from _config");
+        }
+        _name = name;
+        _type = type;
+        _notches = notches;
+        _cycles = cycles;
+        _alphabet = alpha;
+    }
+
+    /** A description of the already built rotor ROTOR, which is frozen
+     *  (see Rotor.freeze). */
+    RotorDescription(Rotor rotor) {
+        rotor.freeze();
+        _name = rotor.name();
+        _type = rotor.reflecting() ? 'R' : rotor.rotates() ? 'M' : 'N';
+        _notches = null;
+        _cycles = null;
+        _alphabet = rotor.alphabet();
+        _rotor = rotor;
+    }
+
+    /** Return the name of my rotor. */
+    String name() {
+        return _name;
+    }
+
+    /** Return true iff my rotor has been built. */
+    boolean built() {
+        return _rotor != null;
+    }
+
+    /** Return my rotor, building it if this is the first request. */
+    Rotor rotor() {
+        Rotor result = _rotor;
+        if (result == null) {
+            synchronized (this) {
+                result = _rotor;
+                if (result == null) {
+                    result = _rotor = build();
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return a new frozen rotor as I describe. */
+    private Rotor build() {
+        Permutation perm = new Permutation(_cycles, _alphabet);
+        Rotor result;
+        switch (_type) {
+        case 'M':
+            result = new MovingRotor(_name, perm, _notches);
+            break;
+        case 'N':
+            result = new FixedRotor(_name, perm);
+            break;
+        default:
+            result = new Reflector(_name, perm);
+            break;
+        }
+        result.freeze();
+        return result;
+    }
+
+    /** Name of my rotor. */
+    private final String _name;
+
+    /** Kind of my rotor: 'M', 'N' or 'R'. */
+    private final char _type;
+
+    /** Characters at which my rotor has notches (null if it was given
+     *  already built). */
+    private final String _notches;
+
+    /** Cycles of my rotor's permutation (null if it was given already
+     *  built). */
+    private final String _cycles;
+
+    /** Alphabet of my rotor. */
+    private final Alphabet _alphabet;
+
+    /** My rotor, or null if it has not been built yet. */
+    private volatile Rotor _rotor;
+}
@@ -0,0 +1,111 @@
+package enigma;
+
+import java.util.Arrays;
+
+/** A fixed-size cache of the combined permutations of a machine by state
+ *  id (see Machine.stateId), keyed by primitive longs so that looking up
+ *  a state allocates nothing.  Entries are grouped into sets of WAYS; an
+ *  id may only be held in the set its hash selects.  When a set is full,
+ *  the entry replaced is chosen by a clock hand over the set that spares
+ *  (once) each entry used since the hand last passed it, and its table
+ *  is reused for the new entry.  Eviction is therefore only roughly
+ *  least-recently-used, and an entry may be evicted while other sets
+ *  still have room.  The memory budget is an upper bound: as many whole
+ *  sets are made as fit in it, up to 2^24 sets.
+ *  @author Jeremy Lazo
+ */
+class StateCache {
+
+    /** Number of entries in each set. */
+    static final int WAYS = 4;
+
+    /** Largest number of sets made. */
+    static final int MAX_SETS = 1 << 24;
+
+    /** Estimated bytes used by an entry besides its table. */
+    static final long ENTRY_OVERHEAD = 32;
+
+    /** A cache of tables of SIZE entries using at most about BYTES bytes,
+     *  but holding at least WAYS entries. */
+    StateCache(int size, long bytes) {
+        long entries = Math.max(WAYS, bytes / (ENTRY_OVERHEAD + 4L * size));
+        int sets = (int) Math.min(MAX_SETS, entries / WAYS);
+        _size = size;
+        _sets = sets;
+        _ids = new long[sets * WAYS];
+        _tables = new int[sets * WAYS][];
+        _used = new boolean[sets * WAYS];
+        _hands = new int[sets];
+        clear();
+    }
+
+    /** Return the number of entries I can hold. */
+    int capacity() {
+        return _ids.length;
+    }
+
+    /** Remove all my entries, keeping their tables for reuse. */
+    void clear() {
+        Arrays.fill(_ids, EMPTY);
+    }
+
+    /** Return the table for state id ID, or null if I do not hold it. */
+    int[] get(long id) {
+        int base = set(id) * WAYS;
+        for (int k = base; k < base + WAYS; k += 1) {
+            if (_ids[k] == id) {
+                _used[k] = true;
+                return _tables[k];
+            }
+        }
+        return null;
+    }
+
+    /** Make room for state id ID, which I must not hold, and return its
+     *  table, whose contents the caller must fill in. */
+    int[] put(long id) {
+        int s = set(id);
+        int base = s * WAYS;
+        int k = base + _hands[s];
+        while (_ids[k] != EMPTY && _used[k]) {
+            _used[k] = false;
+            k = k + 1 == base + WAYS ? base : k + 1;
+        }
+        _hands[s] = (k + 1 - base) % WAYS;
+        _ids[k] = id;
+        _used[k] = false;
+        if (_tables[k] == null) {
+            _tables[k] = new int[_size];
+        }
+        return _tables[k];
+    }
+
+    /** Return the set that may hold state id ID: the high 32 bits of its
+     *  hash, scaled to the number of sets. */
+    private int set(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (((h >>> 32) * _sets) >>> 32);
+    }
+
+    /** Id of an unused entry (state ids are never negative). */
+    private static final long EMPTY = -1;
+
+    /** Size of each table. */
+    private final int _size;
+
+    /** Number of sets. */
+    private final int _sets;
+
+    /** State id of each entry, or EMPTY.  Entry K is in set K / WAYS. */
+    private final long[] _ids;
+
+    /** Table of each entry, or null if never used. */
+    private final int[][] _tables;
+
+    /** _used[K] is true iff entry K has been looked up since the clock
+     *  hand of its set last passed it. */
+    private final boolean[] _used;
+
+    /** Position within each set of its clock hand. */
+    private final int[] _hands;
+}
@@ -0,0 +1,218 @@
+package enigma;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/** Counters of the work done by the simulator, for telling whether a run
+ *  is spent reading configurations, stepping rotors or moving bytes.
+ *  Nothing is counted unless the system property ENABLED_PROPERTY is
+ *  "true" when the class is loaded.  This is a run-time switch: ENABLED
+ *  is read from the property, so javac keeps every test of it, but it is
+ *  a static final field that the JIT compiler treats as a constant once
+ *  the class is initialized, so compiled code has no tests of it and,
+ *  when it is false, no counting.  The counters are LongAdders, which
+ *  spread concurrent updates over separate cells; Machines also count
+ *  into their own fields and add those here only once per bulk
+ *  conversion (see Machine.flushStats), so that the encoding loop
+ *  touches no shared memory.  Counts of a machine used only through
+ *  Machine.convert(int) appear here only after its flushStats() is
+ *  called.  The totals are published as a JMX MBean and, optionally, as
+ *  a line written periodically to the standard error.
+ *  @author Jeremy Lazo
+ */
+final class Stats implements StatsMXBean {
+
+    /** System property that, when "true", turns on counting. */
+    static final String ENABLED_PROPERTY = "enigma.stats";
+
+    /** System property giving the number of seconds between the lines
+     *  of statistics written to the standard error.  With 0, the
+     *  default, none are written. */
+    static final String INTERVAL_PROPERTY = "enigma.statsInterval";
+
+    /** Name under which the counters are registered with the platform
+     *  MBean server. */
+    static final String OBJECT_NAME = "enigma:type=Stats";
+
+    /** True iff counting is on. */
+    static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    /** Characters converted. */
+    static final LongAdder CHARS = new LongAdder();
+
+    /** Rotor movements. */
+    static final LongAdder STEPS = new LongAdder();
+
+    /** Rotor movements made by a rotor at its own notch without a push
+     *  from its right. */
+    static final LongAdder DOUBLE_STEPS = new LongAdder();
+
+    /** Settings blocks processed. */
+    static final LongAdder BLOCKS = new LongAdder();
+
+    /** Nanoseconds spent reading configurations. */
+    static final LongAdder CONFIG_NANOS = new LongAdder();
+
+    /** Message bytes read. */
+    static final LongAdder BYTES_IN = new LongAdder();
+
+    /** Output bytes written. */
+    static final LongAdder BYTES_OUT = new LongAdder();
+
+    /** The only instance, through which the counters are read over
+     *  JMX. */
+    private static final Stats INSTANCE = new Stats();
+
+    /** Not instantiable elsewhere. */
+    private Stats() {
+    }
+
+    /** If counting is on, register the counters with the platform MBean
+     *  server and start writing a line of them to the standard error
+     *  every INTERVAL_PROPERTY seconds, if that is positive.  Does
+     *  nothing if already started. */
+    static synchronized void start() {
+        if (!ENABLED || _started) {
+            return;
+        }
+        _started = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (JMException excp) {
+            System.err.printf("Warning: could not register %s: %s%n",
+                              OBJECT_NAME, excp.getMessage());
+        }
+        long interval = Long.getLong(INTERVAL_PROPERTY, 0);
+        if (interval > 0) {
+            ScheduledExecutorService timer =
+                Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread result = new Thread(r, "enigma-stats");
+                    result.setDaemon(true);
+                    return result;
+                });
+            timer.scheduleAtFixedRate(Stats::report, interval, interval,
+                                      TimeUnit.SECONDS);
+        }
+    }
+
+    /** If counting is on and periodic lines were requested, write a last
+     *  line of statistics to the standard error. */
+    static void finish() {
+        if (ENABLED && Long.getLong(INTERVAL_PROPERTY, 0) > 0) {
+            report();
+        }
+    }
+
+    /** Write a line of statistics to the standard error. */
+    static void report() {
+        System.err.println(summary());
+    }
+
+    /** Return the current counts as a single line. */
+    static String summary() {
+        return String.format("enigma: chars=%d steps=%d doubleSteps=%d"
+                             + " blocks=%d configMs=%.3f bytesIn=%d"
+                             + " bytesOut=%d",
+                             CHARS.sum(), STEPS.sum(), DOUBLE_STEPS.sum(),
+                             BLOCKS.sum(), CONFIG_NANOS.sum() / 1e6,
+                             BYTES_IN.sum(), BYTES_OUT.sum());
+    }
+
+    /** Return IN, counting the bytes read from it into BYTES_IN if
+     *  counting is on. */
+    static InputStream counted(InputStream in) {
+        if (!ENABLED) {
+            return in;
+        }
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    BYTES_IN.increment();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    BYTES_IN.add(n);
+                }
+                return n;
+            }
+        };
+    }
+
+    /** Return OUT, counting the bytes written to it into BYTES_OUT if
+     *  counting is on. */
+    static OutputStream counted(OutputStream out) {
+        if (!ENABLED) {
+            return out;
+        }
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                BYTES_OUT.increment();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len)
+                throws IOException {
+                out.write(b, off, len);
+                BYTES_OUT.add(len);
+            }
+        };
+    }
+
+    @Override
+    public long getCharsConverted() {
+        return CHARS.sum();
+    }
+
+    @Override
+    public long getRotorSteps() {
+        return STEPS.sum();
+    }
+
+    @Override
+    public long getDoubleSteps() {
+        return DOUBLE_STEPS.sum();
+    }
+
+    @Override
+    public long getBlocks() {
+        return BLOCKS.sum();
+    }
+
+    @Override
+    public double getConfigLoadMillis() {
+        return CONFIG_NANOS.sum() / 1e6;
+    }
+
+    @Override
+    public long getBytesIn() {
+        return BYTES_IN.sum();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return BYTES_OUT.sum();
+    }
+
+    /** True iff start() has been called. */
+    private static boolean _started;
+}
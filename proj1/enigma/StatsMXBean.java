@@ -0,0 +1,30 @@
+package enigma;
+
+/** Management interface through which the counters of Stats are
+ *  published over JMX, as the MBean named Stats.OBJECT_NAME.
+ *  @author Jeremy Lazo
+ */
+public interface StatsMXBean {
+
+    /** Return the number of characters converted. */
+    long getCharsConverted();
+
+    /** Return the number of times a rotor has moved. */
+    long getRotorSteps();
+
+    /** Return the number of times a rotor has moved itself at a notch
+     *  without being pushed by the rotor to its right. */
+    long getDoubleSteps();
+
+    /** Return the number of settings blocks processed. */
+    long getBlocks();
+
+    /** Return the time spent reading configurations, in milliseconds. */
+    double getConfigLoadMillis();
+
+    /** Return the number of bytes of messages read. */
+    long getBytesIn();
+
+    /** Return the number of bytes of output written. */
+    long getBytesOut();
+}